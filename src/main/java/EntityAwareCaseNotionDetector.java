@@ -20,6 +20,17 @@ public class EntityAwareCaseNotionDetector {
     options.addOption("i", "input", true, "Specify location of the CSV-file representing the unlabeled event log taken as input");
     options.addOption("o", "output", true, "Specify directory for the resulting XES-logs");
     options.addOption("s", "separator", true, "Set column separator of the CSV-file specified as input (default: ';')");
+    options.addOption("m", "mapped", false, "Read the CSV-file via a memory mapping (the separator is matched literally)");
+    options.addOption("j", "import-threads", true, "Set number of threads used to import the CSV-file, implies -m\n(default: number of available cores)");
+    options.addOption("f", "fused-counting", false, "Count activity-attribute relations while importing the CSV-file instead of in a separate pass");
+    options.addOption("c", "cache", false, "Cache the imported event log and the tables detected on all events (not on a sample) in a binary snapshot next to the CSV-file and reuse it on later runs");
+    options.addOption("b", "sort-memory", true, "Set memory in MB available for sorting input that is not ordered by timestamp, larger logs are sorted externally\n(default: half of the maximum heap size)");
+    options.addOption("n", "sample-size", true, "Detect the tables on a sample of about the given number of events, stratified by activity, and validate them on all events");
+    options.addOption("e", "weight-error", true, "Estimate the distinct values of the columns for the similarity weights with the given relative error (e.g. 0.01) instead of counting them exactly, the columns are sketched in parallel");
+    options.addOption("r", "max-iterations", true, "Stop the lifecycle estimation of an object class after the given number of iterations\n(default: until the instances repeat)");
+    options.addOption("l", "time-limit", true, "Stop the lifecycle estimation of an object class after the given number of seconds and keep the instances of the last completed iteration\n(default: no limit)");
+    options.addOption("p", "partition-threshold", true, "Estimate the lifecycle of object classes with at least the given number of events in parallel partitions of events connected by identifying values, which may assign events differently\n(default: no partitioning)");
+    options.addOption("a", "inactivity-timeout", true, "Close object instances and traces without events for the given time, in the unit of the timestamps, so they are no longer considered for later events\n(default: no timeout)");
     options.addOption("t", "threshold", true, "Set similarity threshold 0 <= t <= 1\n(default: 0.7)");
     options.addOption("v", "verbose", false, "Enable detailed console output");
     options.addOption("d", "debugging", false, "Enable debugging mode");
@@ -31,6 +42,17 @@ public class EntityAwareCaseNotionDetector {
     double selectedSimilarityThreshold = 0.7;
     boolean verbose = false;
     boolean debuggingMode = false;
+    boolean memoryMapped = false;
+    boolean useSnapshot = false;
+    boolean fusedCounting = false;
+    long sortMemory = EventSorter.defaultMemoryBudget();
+    int importThreads = Runtime.getRuntime().availableProcessors();
+    int sampleSize = 0;
+    double weightError = 0;
+    int maxIterations = 0;
+    long timeLimit = 0;
+    int partitionThreshold = 0;
+    long inactivityTimeout = 0;
 
     CommandLineParser parser = new DefaultParser();
     HelpFormatter formatter = new HelpFormatter();
@@ -58,6 +80,33 @@ public class EntityAwareCaseNotionDetector {
       }
       verbose = cmd.hasOption("v");
       debuggingMode = cmd.hasOption("d");
+      memoryMapped = cmd.hasOption("m") || cmd.hasOption("j");
+      useSnapshot = cmd.hasOption("c");
+      fusedCounting = cmd.hasOption("f");
+      if (cmd.hasOption("b")) {
+        sortMemory = Math.max(1, Long.parseLong(cmd.getOptionValue("b"))) * 1024 * 1024;
+      }
+      if (cmd.hasOption("n")) {
+        sampleSize = Math.max(1, Integer.parseInt(cmd.getOptionValue("n")));
+      }
+      if (cmd.hasOption("e")) {
+        weightError = Double.parseDouble(cmd.getOptionValue("e"));
+      }
+      if (cmd.hasOption("r")) {
+        maxIterations = Math.max(1, Integer.parseInt(cmd.getOptionValue("r")));
+      }
+      if (cmd.hasOption("l")) {
+        timeLimit = Math.max(1, Math.round(Double.parseDouble(cmd.getOptionValue("l")) * 1000));
+      }
+      if (cmd.hasOption("p")) {
+        partitionThreshold = Math.max(1, Integer.parseInt(cmd.getOptionValue("p")));
+      }
+      if (cmd.hasOption("a")) {
+        inactivityTimeout = Math.max(1, Long.parseLong(cmd.getOptionValue("a")));
+      }
+      if (cmd.hasOption("j")) {
+        importThreads = Math.max(1, Integer.parseInt(cmd.getOptionValue("j")));
+      }
     } catch (ParseException e) {
       e.printStackTrace();
       System.exit(1);
@@ -67,10 +116,34 @@ public class EntityAwareCaseNotionDetector {
 
     // Import Event Log from CSV
     List<Event> eventList = null;
+    RelationStatistics relationStatistics = null;
     String inputFileName = "";
+    SnapshotCache snapshotCache = useSnapshot ? new SnapshotCache(inputFilePath, columnSeparator, debuggingMode, memoryMapped) : null;
 
     try {
-      eventList = CSVImporter.load(inputFilePath, columnSeparator, debuggingMode);
+      if (snapshotCache != null) {
+        eventList = snapshotCache.loadEvents();
+      }
+      if (eventList == null) {
+        // Logs that do not fit into memory are sorted before the import, all others after the import
+        String importFilePath = inputFilePath;
+        if (!EventSorter.fitsInMemory(inputFilePath, sortMemory) && !EventSorter.isSorted(inputFilePath, columnSeparator, debuggingMode, memoryMapped)) {
+          importFilePath = EventSorter.sortFile(inputFilePath, columnSeparator, debuggingMode, memoryMapped, sortMemory).getPath();
+        }
+        relationStatistics = fusedCounting ? new RelationStatistics() : null;
+        eventList = memoryMapped
+            ? CSVImporter.loadMapped(importFilePath, columnSeparator, debuggingMode, importThreads, relationStatistics)
+            : CSVImporter.load(importFilePath, columnSeparator, debuggingMode, relationStatistics);
+        if (!EventSorter.isSorted(eventList)) {
+          // The collected relations refer to the event ids before sorting
+          relationStatistics = null;
+          eventList = EventSorter.ensureSorted(eventList);
+        }
+        if (snapshotCache != null) {
+          List<Event> importedEvents = eventList;
+          storeSnapshot(() -> snapshotCache.storeEvents(importedEvents));
+        }
+      }
       inputFileName = Paths.get(inputFilePath).getFileName().toString();
       int dotIndex = inputFileName.lastIndexOf(".");
       inputFileName = (dotIndex == -1) ? inputFileName : inputFileName.substring(0, dotIndex);
@@ -84,7 +157,19 @@ public class EntityAwareCaseNotionDetector {
     // Step 1: Event Log Subdivision
 
     // Detect Data Model
-    List<ObjectClass> objectClasses = SchemaDetector.extractTables(events);
+    // Only schemas detected on the whole log are cached, a sampled schema neither replaces nor uses a cached one
+    List<ObjectClass> objectClasses;
+    if (sampleSize > 0) {
+      objectClasses = SchemaSampler.extractTables(events, sampleSize);
+    } else if (snapshotCache != null && snapshotCache.getObjectClasses() != null) {
+      objectClasses = SchemaDetector.restoreTables(snapshotCache.getObjectClasses(), events);
+    } else {
+      objectClasses = SchemaDetector.extractTables(events, relationStatistics);
+      if (snapshotCache != null) {
+        List<ObjectClass> detectedClasses = objectClasses;
+        storeSnapshot(() -> snapshotCache.storeSchema(detectedClasses));
+      }
+    }
 
     // Determine number of cores for multiprocessing
     int cores = Math.min(objectClasses.size(), Runtime.getRuntime().availableProcessors() - 1); // Keep one core free to ensure responsiveness
@@ -103,27 +188,49 @@ public class EntityAwareCaseNotionDetector {
 
     // Step 2: Instance Detection
 
-    // Determine similarity weights and display data objects
+    // Determine similarity weights and object lifecycles, each object class proceeds without waiting for the others
+    System.out.println("Detecting object lifecycles... ");
+    final double weightRelativeError = weightError;
+    final int iterationLimit = maxIterations;
+    final long estimationTimeLimit = timeLimit;
+    final int minimumPartitionedEvents = partitionThreshold;
+    final long instanceInactivityTimeout = inactivityTimeout;
+    // Partitions of large object classes and sketches of estimated weights run on a separate work-stealing pool, the
+    // class tasks wait for them
+    int partitionThreads = ConcurrencyHelper.defaultParallelism();
+    ExecutorService workerPool = partitionThreshold > 0 || weightError > 0 ? Executors.newWorkStealingPool(partitionThreads) : null;
+    List<Future<Void>> lifecycleThreads = ConcurrencyHelper.startAll(executor, objectClasses.stream()
+        .map(objectClass -> (Runnable) () -> {
+          SimilarityWeightEvaluator.determineSimilarityWeights(objectClass, weightRelativeError, workerPool);
+          ObjectLifecycleDetector lifecycleDetector = new ObjectLifecycleDetector(objectClass, similarityThreshold);
+          lifecycleDetector.setIterationLimit(iterationLimit);
+          lifecycleDetector.setTimeLimit(estimationTimeLimit);
+          lifecycleDetector.setInactivityTimeout(instanceInactivityTimeout);
+          if (minimumPartitionedEvents > 0 && objectClass.getRelevantEvents().size() >= minimumPartitionedEvents) {
+            LifecyclePartitioner.estimate(lifecycleDetector, workerPool, partitionThreads);
+          } else {
+            lifecycleDetector.run();
+          }
+        })
+        .collect(Collectors.toList()));
+    ConcurrencyHelper.syncAll(lifecycleThreads);
+    System.out.println("done.\n");
+    executor.shutdown();
+    if (workerPool != null) {
+      workerPool.shutdown();
+    }
+
+    // Display the similarity weights of the data objects
     for (ObjectClass objectClass : objectClasses) {
       Map<String, Column> columns = objectClass.getAttributes();
       System.out.println(objectClass.getName() + " columns: " + columns.size());
-      double totalScore = SimilarityWeightEvaluator.determineSimilarityWeights(new ArrayList(columns.values()), objectClass.getRelevantEvents());
-      objectClass.setHighestSimilarityScore(totalScore);
+      double totalScore = objectClass.getHighestSimilarityScore();
       for (Column column : columns.values()) {
         System.out.println(column.getName() + " (similarity weight = " + column.getSimilarityWeight() / totalScore + ") [absolute similarity weight = " + column.getSimilarityWeight() + "]");
       }
       System.out.println();
     }
 
-    System.out.println("Detecting object lifecycles... ");
-    List<Future<Void>> lifecycleThreads = ConcurrencyHelper.startAll(executor, objectClasses.stream()
-        .map(objectClass -> new ObjectLifecycleDetector(objectClass, similarityThreshold))
-        .collect(Collectors.toList()));
-    ConcurrencyHelper.syncAll(lifecycleThreads);
-
-    System.out.println("done.\n");
-    executor.shutdown();
-
     // Create references between events and instances
     System.out.print("Assigning instances to events... ");
     for (ObjectClass objectClass : objectClasses) {
@@ -138,6 +245,11 @@ public class EntityAwareCaseNotionDetector {
     // Print life cycle for each object class
     for (ObjectClass objectClass : objectClasses) {
       System.out.println("\nClass: " + objectClass.getName() + "\n(extracted " + objectClass.getInstances().size() + " instances from " + objectClass.getRelevantEvents().size() + " events)\n");
+      if (objectClass.getEstimationStop() == EstimationStop.ITERATION_LIMIT) {
+        System.out.println("Estimation stopped at the iteration limit before the instances repeated\n");
+      } else if (objectClass.getEstimationStop() == EstimationStop.TIME_LIMIT) {
+        System.out.println("Estimation stopped at the time limit before the instances repeated\n");
+      }
       System.out.println(objectClass.getLifecycle());
     }
 
@@ -200,7 +312,7 @@ public class EntityAwareCaseNotionDetector {
 
       // Generate traces
       try {
-        EventLog eventLog = TraceBuilder.buildEventLog(rootObjectClass, events);
+        EventLog eventLog = TraceBuilder.buildEventLog(rootObjectClass, events, instanceInactivityTimeout);
         XESLogGenerator.serializeLog(eventLog, rootObjectClass, outputDirectoryPath, inputFileName);
       } catch (Exception e) {
         e.printStackTrace();
@@ -214,4 +326,17 @@ public class EntityAwareCaseNotionDetector {
     }
     System.out.println("Program terminated");
   }
+
+  private interface SnapshotWriter {
+    void write() throws IOException;
+  }
+
+  // A failing snapshot only costs the next run the import, so it does not abort the current run
+  private static void storeSnapshot(SnapshotWriter writer) {
+    try {
+      writer.write();
+    } catch (IOException e) {
+      System.out.println("Could not write snapshot: " + e.getMessage() + "\n");
+    }
+  }
 }
@@ -0,0 +1,142 @@
+package evaluation;
+
+import models.*;
+import modules.SchemaDetector;
+
+import java.util.*;
+import java.util.stream.Collectors;
+
+// Compares the attribute clustering of isolated activities with boxed hash sets (previous approach) and with
+// compressed event id sets, on a synthetic log of a single activity with many attributes
+// Usage: ClusteringBenchmark [EVENTS (default: 500000)] [ATTRIBUTES (default: 1000)] [CLUSTERS (default: 20)]
+//        [REPETITIONS (default: 3)]
+public class ClusteringBenchmark {
+
+  // Events of a cluster are recorded in bursts of consecutive events
+  private static final int BURST_LENGTH = 64;
+
+  public static void main(String[] args) {
+    int eventCount = args.length > 0 ? Integer.parseInt(args[0]) : 500000;
+    int attributeCount = args.length > 1 ? Integer.parseInt(args[1]) : 1000;
+    int clusterCount = args.length > 2 ? Integer.parseInt(args[2]) : 20;
+    int repetitions = args.length > 3 ? Integer.parseInt(args[3]) : 3;
+
+    List<Event> events = generateEvents(eventCount, attributeCount, clusterCount);
+    System.out.println(eventCount + " events, " + attributeCount + " attributes, " + clusterCount + " clusters\n");
+
+    // The detection removes the clustered attributes from the mapping, so every run gets its own mapping
+    List<A2AMapping> mappings = new ArrayList<>();
+    for (int i = 0; i <= repetitions; i++) {
+      mappings.add(SchemaDetector.generateA2AMapping(events, 1));
+    }
+
+    A2AMapping hashSetMapping = mappings.get(0);
+    Map<Attribute, Set<Integer>> hashSets = new HashMap<>();
+    for (Attribute attribute : hashSetMapping.getAttributes().values()) {
+      hashSets.put(attribute, new HashSet<>(attribute.getEventIds()));
+    }
+    List<List<String>> expected = null;
+    double bestSeconds = Double.MAX_VALUE;
+    for (int i = 0; i <= repetitions; i++) {
+      long start = System.nanoTime();
+      expected = clusterWithHashSets(hashSetMapping, hashSets);
+      // The first run is a warm-up run
+      if (i > 0) {
+        bestSeconds = Math.min(bestSeconds, (System.nanoTime() - start) / 1e9);
+      }
+    }
+    System.out.println("Hash sets: " + expected.size() + " clusters, best " + round(bestSeconds) + " s");
+
+    List<ObjectClass> objectClasses = null;
+    bestSeconds = Double.MAX_VALUE;
+    for (int i = 0; i <= repetitions; i++) {
+      objectClasses = new ArrayList<>();
+      long start = System.nanoTime();
+      SchemaDetector.detectIsolatedActivityNonIsolatedAttributeRelations(mappings.get(i), objectClasses);
+      if (i > 0) {
+        bestSeconds = Math.min(bestSeconds, (System.nanoTime() - start) / 1e9);
+      }
+    }
+    List<List<String>> actual = objectClasses.stream().map(ObjectClass::getAttributeNames).collect(Collectors.toList());
+    if (!expected.equals(actual)) {
+      throw new IllegalStateException("The clusters differ");
+    }
+    System.out.println("Event id sets: " + actual.size() + " clusters, best " + round(bestSeconds) + " s");
+  }
+
+  // Clustering step of SchemaDetector.detectIsolatedActivityNonIsolatedAttributeRelations on boxed hash sets
+  private static List<List<String>> clusterWithHashSets(A2AMapping mapping, Map<Attribute, Set<Integer>> eventIds) {
+    List<List<String>> result = new ArrayList<>();
+    for (Activity activity : mapping.getActivities().values()) {
+      List<ActivityAttributeRelation> relations = activity.getAttributeRelations();
+      if (relations.stream().anyMatch(relation -> relation.getAttribute().getActivityRelations().size() > 1)) {
+        break;
+      }
+      Map<Integer, List<Attribute>> rowCountMatcher = new HashMap<>();
+      for (ActivityAttributeRelation relation : relations) {
+        rowCountMatcher.computeIfAbsent(relation.getRelationCounter(), count -> new ArrayList<>()).add(relation.getAttribute());
+      }
+      List<Integer> rowCounts = new ArrayList<>(rowCountMatcher.keySet());
+      Collections.sort(rowCounts);
+      Collections.reverse(rowCounts);
+
+      List<List<Attribute>> attributeClusters = new ArrayList<>();
+      for (int rowCount : rowCounts) {
+        for (Attribute attribute : rowCountMatcher.get(rowCount)) {
+          boolean matched = false;
+          for (List<Attribute> cluster : attributeClusters) {
+            for (Attribute column : cluster) {
+              if (eventIds.get(column).containsAll(eventIds.get(attribute))) {
+                cluster.add(attribute);
+                matched = true;
+                break;
+              }
+            }
+          }
+          if (!matched) {
+            List<Attribute> cluster = new ArrayList<>();
+            cluster.add(attribute);
+            attributeClusters.add(cluster);
+          }
+        }
+      }
+      for (List<Attribute> cluster : attributeClusters) {
+        result.add(cluster.stream().map(Attribute::getName).collect(Collectors.toList()));
+      }
+    }
+    return result;
+  }
+
+  // The events of a cluster share a key attribute, the other attributes of the cluster are set on random subsets
+  private static List<Event> generateEvents(int eventCount, int attributeCount, int clusterCount) {
+    Random random = new Random(42);
+    int[] attributeCodes = new int[attributeCount];
+    double[] probabilities = new double[attributeCount];
+    for (int i = 0; i < attributeCount; i++) {
+      attributeCodes[i] = EventStore.ATTRIBUTES.encode("attribute_" + i);
+      probabilities[i] = i < clusterCount ? 1 : 0.2 + 0.75 * random.nextDouble();
+    }
+    int activity = EventStore.ACTIVITIES.encode("Record Measurement");
+    int value = EventStore.VALUES.encode("value");
+
+    EventStore store = new EventStore(eventCount);
+    int[] codes = new int[attributeCount / clusterCount + 1];
+    int[] values = new int[codes.length];
+    Arrays.fill(values, value);
+    for (int i = 0; i < eventCount; i++) {
+      int cluster = (i / BURST_LENGTH) % clusterCount;
+      int count = 0;
+      for (int attribute = cluster; attribute < attributeCount; attribute += clusterCount) {
+        if (random.nextDouble() < probabilities[attribute]) {
+          codes[count++] = attributeCodes[attribute];
+        }
+      }
+      store.append(i, EventStore.EMPTY_VALUE, i, activity, codes, values, 0, count);
+    }
+    return store.getEvents();
+  }
+
+  private static double round(double number) {
+    return Math.round(number * 1000) / 1000.0;
+  }
+}
@@ -0,0 +1,120 @@
+package evaluation;
+
+import helpers.EventCollector;
+import helpers.ObjectLifecycleDetector;
+import models.Event;
+import models.ObjectClass;
+import models.ObjectInstance;
+import modules.CSVImporter;
+import modules.EventSorter;
+import modules.SchemaDetector;
+import modules.SimilarityWeightEvaluator;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadPoolExecutor;
+
+// Compares the object lifecycle detection with an inactivity timeout to the detection without, per object class. An
+// event counts as differently assigned if the first event of its instance differs between both detections.
+// Usage: InactivityTimeoutEvaluation [CSV-FILE] [TIMEOUT (in the unit of the timestamps)] [SEPARATOR (default: ';')] [SIMILARITY THRESHOLD (default: 0.7)]
+public class InactivityTimeoutEvaluation {
+
+  public static void main(String[] args) throws IOException {
+    if (args.length < 2) {
+      System.out.println("Please provide the CSV-file that should be evaluated and the inactivity timeout");
+      System.exit(1);
+    }
+    String filePath = args[0];
+    long inactivityTimeout = Long.parseLong(args[1]);
+    String separator = args.length > 2 ? args[2] : ";";
+    double similarityThreshold = args.length > 3 ? Double.parseDouble(args[3]) : 0.7;
+
+    PrintStream console = System.out;
+    List<ObjectClass> objectClasses;
+    try {
+      // Suppress the progress output of the import and the schema detection
+      System.setOut(silentStream());
+      // The timeout assumes the events in the order of their timestamps
+      List<Event> events = EventSorter.ensureSorted(CSVImporter.load(filePath, separator, false));
+      objectClasses = SchemaDetector.extractTables(events);
+      ThreadPoolExecutor executor = (ThreadPoolExecutor) Executors.newFixedThreadPool(1);
+      EventCollector.createEventChunks(executor, objectClasses, events);
+      executor.shutdown();
+      for (ObjectClass objectClass : objectClasses) {
+        SimilarityWeightEvaluator.determineSimilarityWeights(objectClass, 0);
+      }
+    } finally {
+      System.setOut(console);
+    }
+
+    long totalEvents = 0;
+    long totalDifferences = 0;
+    for (ObjectClass objectClass : objectClasses) {
+      long start = System.nanoTime();
+      run(objectClass, similarityThreshold, 0);
+      double unboundedSeconds = (System.nanoTime() - start) / 1e9;
+      Map<Integer, Integer> unboundedInstances = firstEventIds(objectClass.getInstances());
+      int unboundedInstanceCount = objectClass.getInstances().size();
+
+      start = System.nanoTime();
+      run(objectClass, similarityThreshold, inactivityTimeout);
+      double timeoutSeconds = (System.nanoTime() - start) / 1e9;
+      Map<Integer, Integer> timeoutInstances = firstEventIds(objectClass.getInstances());
+
+      int differences = 0;
+      for (Map.Entry<Integer, Integer> assignment : unboundedInstances.entrySet()) {
+        if (!assignment.getValue().equals(timeoutInstances.get(assignment.getKey()))) {
+          differences++;
+        }
+      }
+      totalEvents += unboundedInstances.size();
+      totalDifferences += differences;
+      System.out.println(objectClass.getName() + " (" + unboundedInstances.size() + " events):");
+      System.out.println("  - Unbounded: " + round(unboundedSeconds) + " s, " + unboundedInstanceCount + " instances");
+      System.out.println("  - Timeout " + inactivityTimeout + ": " + round(timeoutSeconds) + " s, "
+          + objectClass.getInstances().size() + " instances");
+      System.out.println("  - Differently assigned events: " + differences);
+    }
+    System.out.println("\nDifferently assigned events: " + totalDifferences + " of " + totalEvents);
+  }
+
+  private static void run(ObjectClass objectClass, double similarityThreshold, long inactivityTimeout) {
+    PrintStream console = System.out;
+    try {
+      // Suppress the progress output of the estimation
+      System.setOut(silentStream());
+      ObjectLifecycleDetector lifecycleDetector = new ObjectLifecycleDetector(objectClass, similarityThreshold);
+      lifecycleDetector.setInactivityTimeout(inactivityTimeout);
+      lifecycleDetector.run();
+    } finally {
+      System.setOut(console);
+    }
+  }
+
+  // Id of the first event of the instance of each event
+  private static Map<Integer, Integer> firstEventIds(List<ObjectInstance> instances) {
+    Map<Integer, Integer> firstEventIds = new HashMap<>();
+    for (ObjectInstance instance : instances) {
+      int firstEventId = instance.getFirstElement().getId();
+      for (Event event : instance.getElements()) {
+        firstEventIds.put(event.getId(), firstEventId);
+      }
+    }
+    return firstEventIds;
+  }
+
+  private static PrintStream silentStream() {
+    return new PrintStream(new OutputStream() {
+      @Override
+      public void write(int b) {
+      }
+    });
+  }
+
+  private static double round(double number) {
+    return Math.round(number * 100) / 100.0;
+  }
+}
@@ -0,0 +1,67 @@
+package evaluation;
+
+import models.Event;
+import modules.CSVImporter;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.List;
+
+// Compares the throughput of the available CSV readers
+// Usage: IngestionBenchmark [CSV-FILE] [SEPARATOR (default: ';')] [REPETITIONS (default: 5)]
+public class IngestionBenchmark {
+
+  private interface Importer {
+    List<Event> load() throws IOException;
+  }
+
+  public static void main(String[] args) throws IOException {
+    if (args.length < 1) {
+      System.out.println("Please provide the CSV-file that should be imported");
+      System.exit(1);
+    }
+    String filePath = args[0];
+    String separator = args.length > 1 ? args[1] : ";";
+    int repetitions = args.length > 2 ? Integer.parseInt(args[2]) : 5;
+    double megabytes = new File(filePath).length() / (1024.0 * 1024.0);
+
+    System.out.println("Input: " + filePath + " (" + round(megabytes) + " MB)\n");
+    measure("BufferedReader", megabytes, repetitions, () -> CSVImporter.load(filePath, separator, false));
+    measure("Memory-mapped", megabytes, repetitions, () -> CSVImporter.loadMapped(filePath, separator, false));
+    int threads = Runtime.getRuntime().availableProcessors();
+    measure("Memory-mapped (" + threads + " threads)", megabytes, repetitions, () -> CSVImporter.loadMapped(filePath, separator, false, threads));
+  }
+
+  private static void measure(String name, double megabytes, int repetitions, Importer importer) throws IOException {
+    PrintStream console = System.out;
+    double bestSeconds = Double.MAX_VALUE;
+    double totalSeconds = 0;
+    int eventCount = 0;
+    try {
+      // Suppress the progress output of the importer
+      System.setOut(new PrintStream(new OutputStream() {
+        @Override
+        public void write(int b) {
+        }
+      }));
+      // Warm-up run
+      importer.load();
+      for (int i = 0; i < repetitions; i++) {
+        long start = System.nanoTime();
+        eventCount = importer.load().size();
+        double seconds = (System.nanoTime() - start) / 1e9;
+        bestSeconds = Math.min(bestSeconds, seconds);
+        totalSeconds += seconds;
+      }
+    } finally {
+      System.setOut(console);
+    }
+    System.out.println(name + ": " + eventCount + " events, best " + round(megabytes / bestSeconds) + " MB/s, average " + round(megabytes * repetitions / totalSeconds) + " MB/s");
+  }
+
+  private static double round(double number) {
+    return Math.round(number * 100) / 100.0;
+  }
+}
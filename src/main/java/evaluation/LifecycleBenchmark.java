@@ -0,0 +1,111 @@
+package evaluation;
+
+import helpers.ObjectLifecycleDetector;
+import models.Event;
+import models.EventStore;
+import models.ObjectClass;
+import models.ObjectInstance;
+import modules.SchemaDetector;
+import modules.SimilarityWeightEvaluator;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.*;
+import java.util.stream.Collectors;
+
+// Compares the object lifecycle detection with the value index to the scan of all instances per event, on a synthetic
+// object class whose instances are created, updated and closed with overlapping lifetimes
+// Usage: LifecycleBenchmark [INSTANCES (default: 100000)] [SCAN (default: true)] [SIMILARITY THRESHOLD (default: 0.7)]
+public class LifecycleBenchmark {
+
+  // Number of instances open at the same time
+  private static final int OPEN_INSTANCES = 500;
+  private static final String[] STATUSES = {"waiting", "in progress", "blocked"};
+
+  public static void main(String[] args) {
+    int instanceCount = args.length > 0 ? Integer.parseInt(args[0]) : 100000;
+    boolean scan = args.length <= 1 || Boolean.parseBoolean(args[1]);
+    double similarityThreshold = args.length > 2 ? Double.parseDouble(args[2]) : 0.7;
+
+    List<Event> events = generateEvents(instanceCount);
+    ObjectClass objectClass = new ObjectClass(0, "ObjectClass_0", Arrays.asList("benchmark_ticket", "benchmark_status", "benchmark_owner"));
+    objectClass.setRelevantEvents(events);
+    SchemaDetector.populateColumns(Collections.singletonList(objectClass), events, 1);
+    SimilarityWeightEvaluator.determineSimilarityWeights(objectClass, 0);
+    System.out.println(events.size() + " events of " + instanceCount + " instances\n");
+
+    double indexedSeconds = run(objectClass, similarityThreshold, true);
+    List<List<Integer>> indexedInstances = eventIds(objectClass.getInstances());
+    System.out.println("Indexed: " + round(indexedSeconds) + " s, " + indexedInstances.size() + " instances");
+    if (scan) {
+      double scanSeconds = run(objectClass, similarityThreshold, false);
+      System.out.println("Scan: " + round(scanSeconds) + " s, " + objectClass.getInstances().size() + " instances");
+      System.out.println("Speedup: " + round(scanSeconds / indexedSeconds) + "x, identical instances: "
+          + indexedInstances.equals(eventIds(objectClass.getInstances())));
+    }
+  }
+
+  private static double run(ObjectClass objectClass, double similarityThreshold, boolean indexed) {
+    PrintStream console = System.out;
+    long start = System.nanoTime();
+    try {
+      // Suppress the progress output of the estimation
+      System.setOut(new PrintStream(new OutputStream() {
+        @Override
+        public void write(int b) {
+        }
+      }));
+      new ObjectLifecycleDetector(objectClass, similarityThreshold, indexed).estimate();
+    } finally {
+      System.setOut(console);
+    }
+    return (System.nanoTime() - start) / 1e9;
+  }
+
+  // Each instance is created, updated a few times and closed, while other instances are open
+  private static List<Event> generateEvents(int instanceCount) {
+    Random random = new Random(42);
+    EventStore store = new EventStore();
+    List<Integer> openTickets = new ArrayList<>();
+    Map<Integer, Integer> remainingUpdates = new HashMap<>();
+    int createdTickets = 0;
+    while (createdTickets < instanceCount || !openTickets.isEmpty()) {
+      Map<String, String> attributes = new HashMap<>();
+      String activity;
+      if (createdTickets < instanceCount && (openTickets.size() < OPEN_INSTANCES || openTickets.isEmpty())) {
+        int ticket = createdTickets++;
+        openTickets.add(ticket);
+        remainingUpdates.put(ticket, random.nextInt(4));
+        attributes.put("benchmark_ticket", String.valueOf(ticket));
+        attributes.put("benchmark_owner", String.valueOf(random.nextInt(1000)));
+        activity = "create ticket";
+      } else {
+        int openIndex = random.nextInt(openTickets.size());
+        int ticket = openTickets.get(openIndex);
+        attributes.put("benchmark_ticket", String.valueOf(ticket));
+        if (remainingUpdates.get(ticket) > 0) {
+          remainingUpdates.put(ticket, remainingUpdates.get(ticket) - 1);
+          attributes.put("benchmark_status", STATUSES[random.nextInt(STATUSES.length)]);
+          activity = "update ticket";
+        } else {
+          openTickets.set(openIndex, openTickets.get(openTickets.size() - 1));
+          openTickets.remove(openTickets.size() - 1);
+          attributes.put("benchmark_status", "closed");
+          activity = "close ticket";
+        }
+      }
+      store.append(store.size(), "0", store.size(), activity, attributes);
+    }
+    return store.getEvents();
+  }
+
+  private static List<List<Integer>> eventIds(List<ObjectInstance> instances) {
+    return instances.stream()
+        .map(instance -> instance.getElements().stream().map(Event::getId).collect(Collectors.toList()))
+        .collect(Collectors.toList());
+  }
+
+  private static double round(double number) {
+    return Math.round(number * 100) / 100.0;
+  }
+}
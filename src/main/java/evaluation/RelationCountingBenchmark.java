@@ -0,0 +1,120 @@
+package evaluation;
+
+import com.google.common.collect.HashBasedTable;
+import com.google.common.collect.Table;
+import models.*;
+import modules.SchemaDetector;
+
+import java.util.*;
+
+// Compares counting activity-attribute relations in a hash table keyed by objects (previous approach) with the
+// int-coded relation matrix on a synthetic log with a wide schema
+// Usage: RelationCountingBenchmark [EVENTS (default: 500000)] [ATTRIBUTES (default: 5000)] [ACTIVITIES (default: 200)]
+//        [ATTRIBUTES PER EVENT (default: 8)] [REPETITIONS (default: 3)]
+public class RelationCountingBenchmark {
+
+  public static void main(String[] args) {
+    int eventCount = args.length > 0 ? Integer.parseInt(args[0]) : 500000;
+    int attributeCount = args.length > 1 ? Integer.parseInt(args[1]) : 5000;
+    int activityCount = args.length > 2 ? Integer.parseInt(args[2]) : 200;
+    int attributesPerEvent = args.length > 3 ? Integer.parseInt(args[3]) : 8;
+    int repetitions = args.length > 4 ? Integer.parseInt(args[4]) : 3;
+
+    List<Event> events = generateEvents(eventCount, attributeCount, activityCount, attributesPerEvent);
+    System.out.println(eventCount + " events, " + attributeCount + " attributes, " + activityCount + " activities, "
+        + attributesPerEvent + " attributes per event\n");
+
+    Map<String, Activity> activities = SchemaDetector.extractActivities(events);
+    Map<String, Attribute> attributes = SchemaDetector.extractAttributes(events);
+
+    Table<Activity, Attribute, Integer> expected = null;
+    double bestSeconds = Double.MAX_VALUE;
+    for (int i = 0; i <= repetitions; i++) {
+      long start = System.nanoTime();
+      expected = countInTable(events, activities, attributes);
+      // The first run is a warm-up run
+      if (i > 0) {
+        bestSeconds = Math.min(bestSeconds, (System.nanoTime() - start) / 1e9);
+      }
+    }
+    System.out.println("Hash table: best " + round(bestSeconds) + " s");
+
+    int threads = Runtime.getRuntime().availableProcessors();
+    for (int threadCount : threads > 1 ? new int[] {1, threads} : new int[] {1}) {
+      RelationMatrix relations = null;
+      bestSeconds = Double.MAX_VALUE;
+      for (int i = 0; i <= repetitions; i++) {
+        long start = System.nanoTime();
+        relations = SchemaDetector.countRelations(events, threadCount);
+        if (i > 0) {
+          bestSeconds = Math.min(bestSeconds, (System.nanoTime() - start) / 1e9);
+        }
+      }
+      for (Table.Cell<Activity, Attribute, Integer> cell : expected.cellSet()) {
+        if (relations.get(cell.getRowKey().getCode(), cell.getColumnKey().getCode()) != cell.getValue()) {
+          throw new IllegalStateException("Relation counts differ for " + cell.getRowKey().getName() + " and " + cell.getColumnKey().getName());
+        }
+      }
+      System.out.println("Relation matrix (" + (relations.isSparse() ? "sparse" : "dense") + ", " + threadCount + " thread"
+          + (threadCount > 1 ? "s" : "") + "): best " + round(bestSeconds) + " s");
+    }
+  }
+
+  // Counting as done before the relation matrix, including the loop over all pairs of activities and attributes
+  private static Table<Activity, Attribute, Integer> countInTable(List<Event> events, Map<String, Activity> activities, Map<String, Attribute> attributes) {
+    Table<Activity, Attribute, Integer> table = HashBasedTable.create();
+    for (Event event : events) {
+      Activity activity = activities.get(event.getActivity());
+      for (int i = 0; i < event.getAttributeCount(); i++) {
+        Attribute attribute = attributes.get(EventStore.ATTRIBUTES.decode(event.getAttributeCode(i)));
+        Integer counter = table.get(activity, attribute);
+        table.put(activity, attribute, counter == null ? 1 : counter + 1);
+      }
+    }
+    int relationCount = 0;
+    for (Activity activity : activities.values()) {
+      for (Attribute attribute : attributes.values()) {
+        if (table.contains(activity, attribute)) {
+          relationCount++;
+        }
+      }
+    }
+    if (relationCount != table.size()) {
+      throw new IllegalStateException("Unexpected number of relations");
+    }
+    return table;
+  }
+
+  // Each activity draws its attributes from its own window of the attributes
+  private static List<Event> generateEvents(int eventCount, int attributeCount, int activityCount, int attributesPerEvent) {
+    Random random = new Random(42);
+    int[] attributeCodes = new int[attributeCount];
+    for (int i = 0; i < attributeCount; i++) {
+      attributeCodes[i] = EventStore.ATTRIBUTES.encode("attribute_" + i);
+    }
+    int[] activityCodes = new int[activityCount];
+    for (int i = 0; i < activityCount; i++) {
+      activityCodes[i] = EventStore.ACTIVITIES.encode("activity_" + i);
+    }
+    int value = EventStore.VALUES.encode("value");
+    int windowSize = Math.max(attributesPerEvent, 4 * attributeCount / activityCount);
+
+    EventStore store = new EventStore(eventCount);
+    int[] codes = new int[attributesPerEvent];
+    int[] values = new int[attributesPerEvent];
+    Arrays.fill(values, value);
+    for (int i = 0; i < eventCount; i++) {
+      int activity = random.nextInt(activityCount);
+      int windowStart = (int) ((long) activity * attributeCount / activityCount);
+      for (int j = 0; j < attributesPerEvent; j++) {
+        codes[j] = attributeCodes[(windowStart + random.nextInt(windowSize)) % attributeCount];
+      }
+      store.append(i, EventStore.EMPTY_VALUE, i, activityCodes[activity], codes, values, 0, attributesPerEvent);
+    }
+    return store.getEvents();
+  }
+
+  private static double round(double number) {
+    return Math.round(number * 1000) / 1000.0;
+  }
+}
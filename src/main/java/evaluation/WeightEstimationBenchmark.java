@@ -0,0 +1,86 @@
+package evaluation;
+
+import helpers.ConcurrencyHelper;
+import helpers.EventCollector;
+import models.Column;
+import models.Event;
+import models.ObjectClass;
+import modules.CSVImporter;
+import modules.SchemaDetector;
+import modules.SimilarityWeightEvaluator;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadPoolExecutor;
+
+// Compares the similarity weights based on exactly counted distinct values with the weights based on estimated
+// distinct values and reports the deviation of each column
+// Usage: WeightEstimationBenchmark [CSV-FILE] [SEPARATOR (default: ';')] [RELATIVE ERROR (default: 0.01)]
+public class WeightEstimationBenchmark {
+
+  public static void main(String[] args) throws IOException {
+    if (args.length < 1) {
+      System.out.println("Please provide the CSV-file that should be evaluated");
+      System.exit(1);
+    }
+    String filePath = args[0];
+    String separator = args.length > 1 ? args[1] : ";";
+    double relativeError = args.length > 2 ? Double.parseDouble(args[2]) : 0.01;
+    int threads = ConcurrencyHelper.defaultParallelism();
+
+    PrintStream console = System.out;
+    List<ObjectClass> objectClasses;
+    try {
+      // Suppress the progress output of the import and the schema detection
+      System.setOut(new PrintStream(new OutputStream() {
+        @Override
+        public void write(int b) {
+        }
+      }));
+      List<Event> events = CSVImporter.load(filePath, separator, false);
+      objectClasses = SchemaDetector.extractTables(events);
+      ThreadPoolExecutor executor = (ThreadPoolExecutor) Executors.newFixedThreadPool(threads);
+      EventCollector.createEventChunks(executor, objectClasses, events);
+      executor.shutdown();
+    } finally {
+      System.setOut(console);
+    }
+
+    long start = System.nanoTime();
+    Map<Column, Double> exactWeights = new HashMap<>();
+    for (ObjectClass objectClass : objectClasses) {
+      List<Column> columns = new ArrayList<>(objectClass.getAttributes().values());
+      SimilarityWeightEvaluator.determineSimilarityWeights(columns, objectClass.getRelevantEvents());
+      for (Column column : columns) {
+        exactWeights.put(column, column.getSimilarityWeight());
+      }
+    }
+    double exactSeconds = (System.nanoTime() - start) / 1e9;
+
+    start = System.nanoTime();
+    SimilarityWeightEvaluator.estimateSimilarityWeights(objectClasses, relativeError, threads);
+    double estimatedSeconds = (System.nanoTime() - start) / 1e9;
+
+    double maximumDeviation = 0;
+    for (ObjectClass objectClass : objectClasses) {
+      System.out.println(objectClass.getName() + ":");
+      for (Column column : objectClass.getAttributes().values()) {
+        double exactWeight = exactWeights.get(column);
+        double deviation = Math.abs(column.getSimilarityWeight() - exactWeight);
+        maximumDeviation = Math.max(maximumDeviation, deviation);
+        System.out.println("  - " + column.getName() + ": exact " + round(exactWeight) + ", estimated "
+            + round(column.getSimilarityWeight()) + " (deviation " + round(deviation) + ")");
+      }
+    }
+    System.out.println("\nExact: " + round(exactSeconds) + " s, estimated (relative error " + relativeError + ", " + threads
+        + " thread" + (threads > 1 ? "s" : "") + "): " + round(estimatedSeconds) + " s");
+    System.out.println("Maximum deviation of a weight: " + round(maximumDeviation));
+  }
+
+  private static double round(double number) {
+    return Math.round(number * 10000) / 10000.0;
+  }
+}
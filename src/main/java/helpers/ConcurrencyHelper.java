@@ -2,13 +2,16 @@ package helpers;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
 import java.util.concurrent.ThreadPoolExecutor;
 
 public class ConcurrencyHelper {
 
-  public static <T> List<Future<T>> startAll(ThreadPoolExecutor executor, List<? extends Runnable> runnables) {
+  public static <T> List<Future<T>> startAll(ExecutorService executor, List<? extends Runnable> runnables) {
     List<Future<T>> futures = new ArrayList<>();
     for (Runnable runnable : runnables) {
       futures.add((Future<T>) executor.submit(runnable));
@@ -16,6 +19,14 @@ public class ConcurrencyHelper {
     return futures;
   }
 
+  public static <T> List<Future<T>> submitAll(ExecutorService executor, List<? extends Callable<T>> tasks) {
+    List<Future<T>> futures = new ArrayList<>();
+    for (Callable<T> task : tasks) {
+      futures.add(executor.submit(task));
+    }
+    return futures;
+  }
+
   public static <T> List<T> syncAll(List<Future<T>> futures) {
     List<T> returnValues = new ArrayList<>();
     try {
@@ -28,4 +39,41 @@ public class ConcurrencyHelper {
     }
     return returnValues;
   }
+
+  // Number of threads for parallel steps, one core is kept free to ensure responsiveness
+  public static int defaultParallelism() {
+    return Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+  }
+
+  // Run the tasks on a temporary thread pool and return their results in the order of the tasks
+  public static <T> List<T> callAll(List<? extends Callable<T>> tasks, int threads) {
+    if (threads <= 1 || tasks.size() <= 1) {
+      List<T> returnValues = new ArrayList<>();
+      try {
+        for (Callable<T> task : tasks) {
+          returnValues.add(task.call());
+        }
+      } catch (Exception e) {
+        e.printStackTrace();
+        System.exit(1);
+      }
+      return returnValues;
+    }
+    ThreadPoolExecutor executor = (ThreadPoolExecutor) Executors.newFixedThreadPool(Math.min(threads, tasks.size()));
+    try {
+      return syncAll(submitAll(executor, tasks));
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  // Split the items into at most the given number of consecutive chunks of similar size
+  public static <T> List<List<T>> split(List<T> items, int chunkCount) {
+    List<List<T>> chunks = new ArrayList<>();
+    chunkCount = Math.max(1, Math.min(chunkCount, items.size()));
+    for (int i = 0; i < chunkCount; i++) {
+      chunks.add(items.subList((int) ((long) items.size() * i / chunkCount), (int) ((long) items.size() * (i + 1) / chunkCount)));
+    }
+    return chunks;
+  }
 }
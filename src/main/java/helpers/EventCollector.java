@@ -1,49 +1,121 @@
 package helpers;
 
+import models.Column;
 import models.Event;
+import models.EventSelection;
+import models.EventStore;
 import models.ObjectClass;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
-import java.util.Set;
-import java.util.concurrent.Future;
+import java.util.concurrent.Callable;
 import java.util.concurrent.ThreadPoolExecutor;
-import java.util.stream.Collectors;
 
-public class EventCollector extends Thread {
+// Selects the events of a chunk that access at least one attribute of an object class, for all object classes at once.
+// The selected events are returned as positions in the list of all events per object class.
+public class EventCollector implements Callable<int[][]> {
 
-  private ObjectClass objectClass;
-  private List<Event> events;
+  // Number of chunks per thread, more chunks than threads balance uneven chunks
+  private static final int CHUNKS_PER_THREAD = 4;
 
-  public EventCollector(ObjectClass objectClass, List<Event> events) {
-    this.objectClass = objectClass;
+  private final int[][] classIndex;
+  private final int classCount;
+  private final List<Event> events;
+  private final int offset;
+
+  /**
+   * @param classIndex positions of the object classes by attribute code
+   * @param classCount
+   * @param events chunk of the events
+   * @param offset position of the chunk in the list of all events
+   */
+  public EventCollector(int[][] classIndex, int classCount, List<Event> events, int offset) {
+    this.classIndex = classIndex;
+    this.classCount = classCount;
     this.events = events;
+    this.offset = offset;
   }
 
   public static void createEventChunks(ThreadPoolExecutor executor, List<ObjectClass> objectClasses, List<Event> events) {
     System.out.print("Assigning events to object classes... ");
-    List<EventCollector> eventCollectors = objectClasses.stream().map(table -> new EventCollector(table, events)).collect(Collectors.toList());
-    List<Future<Void>> futures = ConcurrencyHelper.startAll(executor, eventCollectors);
-    ConcurrencyHelper.syncAll(futures);
+    int[][] classIndex = createClassIndex(objectClasses);
+    List<EventCollector> eventCollectors = new ArrayList<>();
+    int offset = 0;
+    for (List<Event> chunk : ConcurrencyHelper.split(events, executor.getMaximumPoolSize() * CHUNKS_PER_THREAD)) {
+      eventCollectors.add(new EventCollector(classIndex, objectClasses.size(), chunk, offset));
+      offset += chunk.size();
+    }
+    List<int[][]> chunkPositions = ConcurrencyHelper.syncAll(ConcurrencyHelper.submitAll(executor, eventCollectors));
+
+    // Concatenate the positions of the chunks in event order
+    for (int position = 0; position < objectClasses.size(); position++) {
+      int size = 0;
+      for (int[][] positions : chunkPositions) {
+        size += positions[position].length;
+      }
+      int[] relevantPositions = new int[size];
+      size = 0;
+      for (int[][] positions : chunkPositions) {
+        System.arraycopy(positions[position], 0, relevantPositions, size, positions[position].length);
+        size += positions[position].length;
+      }
+      objectClasses.get(position).setRelevantEvents(new EventSelection(events, relevantPositions, size));
+    }
     System.out.println("done.");
     for (ObjectClass objectClass : objectClasses) {
       System.out.println("Detected " + objectClass.getRelevantEvents().size() + " relevant events for " + objectClass.getName());
     }
   }
 
+  // Inverted index from attribute codes to the positions of the object classes having a column for the attribute
+  public static int[][] createClassIndex(List<ObjectClass> objectClasses) {
+    int[][] classIndex = new int[EventStore.ATTRIBUTES.size()][];
+    for (int position = 0; position < objectClasses.size(); position++) {
+      for (Column column : objectClasses.get(position).getAttributes().values()) {
+        int attributeCode = column.getAttributeCode();
+        if (attributeCode >= classIndex.length) {
+          classIndex = Arrays.copyOf(classIndex, attributeCode + 1);
+        }
+        int[] positions = classIndex[attributeCode] == null ? new int[0] : classIndex[attributeCode];
+        positions = Arrays.copyOf(positions, positions.length + 1);
+        positions[positions.length - 1] = position;
+        classIndex[attributeCode] = positions;
+      }
+    }
+    return classIndex;
+  }
+
   @Override
-  public void run() {
-    // Select all events that access at least one attribute of the object class
-    List<String> columns = this.objectClass.getAttributeNames();
-    this.objectClass.setRelevantEvents(events.stream().filter(event -> {
-      Set<String> attributeNames = event.getAttributes().keySet();
-      return attributeNames.stream().anyMatch(attributeName -> {
-        for (String column : columns) {
-          if (column.equals(attributeName)) {
-            return true;
+  public int[][] call() {
+    int[][] positions = new int[this.classCount][];
+    int[] counts = new int[this.classCount];
+    // Position of the event last added per object class, an event may access several attributes of a class
+    int[] lastEvents = new int[this.classCount];
+    Arrays.fill(lastEvents, -1);
+    for (int eventPosition = 0; eventPosition < this.events.size(); eventPosition++) {
+      Event event = this.events.get(eventPosition);
+      for (int i = 0; i < event.getAttributeCount(); i++) {
+        int attributeCode = event.getAttributeCode(i);
+        if (attributeCode >= this.classIndex.length || this.classIndex[attributeCode] == null) {
+          continue;
+        }
+        for (int position : this.classIndex[attributeCode]) {
+          if (lastEvents[position] != eventPosition) {
+            lastEvents[position] = eventPosition;
+            if (positions[position] == null) {
+              positions[position] = new int[16];
+            } else if (counts[position] == positions[position].length) {
+              positions[position] = Arrays.copyOf(positions[position], counts[position] * 2);
+            }
+            positions[position][counts[position]++] = this.offset + eventPosition;
           }
         }
-        return false;
-      });
-    }).collect(Collectors.toList()));
+      }
+    }
+    for (int position = 0; position < this.classCount; position++) {
+      positions[position] = positions[position] == null ? new int[0] : Arrays.copyOf(positions[position], counts[position]);
+    }
+    return positions;
   }
 }
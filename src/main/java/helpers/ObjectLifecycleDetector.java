@@ -1,28 +1,100 @@
 package helpers;
 
+import models.Column;
 import models.Event;
+import models.EventStore;
+import models.InstanceIndex;
 import models.ObjectInstance;
 import models.ObjectClass;
+import models.StringDictionary;
 import models.TransitionMatrix;
 
 import java.util.*;
-import java.util.stream.Collectors;
 
 // Concept inspired by: https://doi.org/10.1007/978-3-642-03848-8_11
 // Implementation inspired by: https://github.com/diogoff/unlabelled-event-logs
 public class ObjectLifecycleDetector extends TransitionMatrix<ObjectInstance, Event> {
 
+  // Tolerance for rounding when summing up the weights of columns that cannot exceed the threshold
+  private static final double WEIGHT_TOLERANCE = 1e-9;
+
   private ObjectClass objectClass;
   private final double similarityThreshold;
+  private final List<Column> columns;
+  private final boolean indexed;
+  private final boolean updatesObjectClass;
+  // Transition matrix entry per activity code
+  private final int[] activityEntries;
+  private InstanceIndex index;
 
   public ObjectLifecycleDetector(ObjectClass objectClass, double similarityThreshold) {
-    super(objectClass.getRelevantEvents(), objectClass.getName());
+    this(objectClass, similarityThreshold, true);
+  }
+
+  /**
+   * @param objectClass
+   * @param similarityThreshold
+   * @param indexed find suitable instances through an index of their values instead of comparing all instances
+   */
+  public ObjectLifecycleDetector(ObjectClass objectClass, double similarityThreshold, boolean indexed) {
+    this(objectClass, objectClass.getRelevantEvents(), similarityThreshold, indexed, true);
+  }
+
+  // Detector for a partition of the events of the object class, which leaves the object class unchanged
+  public ObjectLifecycleDetector(ObjectClass objectClass, List<Event> events, double similarityThreshold) {
+    this(objectClass, events, similarityThreshold, true, false);
+  }
+
+  private ObjectLifecycleDetector(ObjectClass objectClass, List<Event> events, double similarityThreshold, boolean indexed, boolean updatesObjectClass) {
+    super(events, objectClass.getName());
     this.objectClass = objectClass;
     this.similarityThreshold = similarityThreshold;
+    this.updatesObjectClass = updatesObjectClass;
+    this.columns = new ArrayList<>(objectClass.getAttributes().values());
+    // The index relies on similarities being sums of non-negative weights
+    this.indexed = indexed && this.columns.stream().allMatch(column -> column.getSimilarityWeight() >= 0);
+    this.activityEntries = new int[EventStore.ACTIVITIES.size()];
+    for (Map.Entry<String, Integer> entry : this.getTransitionEntryMap().entrySet()) {
+      this.activityEntries[EventStore.ACTIVITIES.lookup(entry.getKey())] = entry.getValue();
+    }
+  }
+
+  public ObjectClass getObjectClass() {
+    return objectClass;
+  }
+
+  public double getSimilarityThreshold() {
+    return similarityThreshold;
+  }
+
+  @Override
+  protected void estimateSequences() {
+    if (this.indexed) {
+      this.index = new InstanceIndex(this.columns);
+    }
+    super.estimateSequences();
+  }
+
+  @Override
+  protected void sourceExtended(ObjectInstance source, Event element) {
+    if (this.indexed) {
+      this.index.add(source, element);
+    }
+  }
+
+  @Override
+  protected void sourceClosed(ObjectInstance source) {
+    if (this.indexed) {
+      this.index.remove(source);
+    }
   }
 
   @Override
   protected ObjectInstance getSuitableSource(List<ObjectInstance> activeSources, Event element) {
+    if (this.indexed) {
+      return this.findSuitableSource(element);
+    }
+
     // Identify suitable object instance for event
     ObjectInstance suitableEventInstance = null;
 
@@ -30,14 +102,15 @@ public class ObjectLifecycleDetector extends TransitionMatrix<ObjectInstance, Ev
     double similarityScore = 0;
     double similarityTransitionProbability = 0;
     List<ObjectInstance> similarityInstanceCandidates = new ArrayList<>();
+    int[] eventValues = ObjectInstance.findValueCodes(this.columns, element);
 
-    for (ObjectInstance instance : this.getSources()) {
+    for (ObjectInstance instance : activeSources) {
       // Do not add event to instance with first event having the same activity
-      if (instance.getFirstElement().getActivity().equals(element.getActivity())) {
+      if (instance.getFirstElement().getActivityCode() == element.getActivityCode()) {
         continue;
       }
 
-      double score = instance.evaluateSimilarity(element);
+      double score = instance.evaluateSimilarity(eventValues);
       if (score > similarityThreshold && score > similarityScore) {
         similarityScore = score;
         similarityTransitionProbability = this.getTransitionProbability(instance.getLastElement(), element);
@@ -58,24 +131,10 @@ public class ObjectLifecycleDetector extends TransitionMatrix<ObjectInstance, Ev
       }
     }
 
-    // Identify object instance candidate having the minimal number of events with the same activity as the considered event
-    OptionalLong minActivityOccurrences = similarityInstanceCandidates.stream()
-        .mapToLong(instance -> instance.getElements().stream()
-            .filter(instanceEvent -> instanceEvent.getActivity().equals(element.getActivity()))
-            .count())
-        .min();
-
-    // Select object instance with minimal activity occurrences
-    if (minActivityOccurrences.isPresent()) {
-      Optional<ObjectInstance> optionalEventSource = similarityInstanceCandidates.stream()
-          .filter(instance -> instance.getElements().stream()
-              .filter(instanceEvent -> instanceEvent.getActivity().equals(element.getActivity()))
-              .count() == minActivityOccurrences.getAsLong())
-          .findFirst();
-      if (optionalEventSource.isPresent()) {
-        // Assign event to instance based on similarity
-        return optionalEventSource.get();
-      }
+    ObjectInstance similarInstance = this.selectLeastActivityOccurrences(similarityInstanceCandidates, element);
+    if (similarInstance != null) {
+      // Assign event to instance based on similarity
+      return similarInstance;
     }
 
     // No instance candidates found based on similarity
@@ -84,7 +143,7 @@ public class ObjectLifecycleDetector extends TransitionMatrix<ObjectInstance, Ev
 
     double probabilityScore = 0;
 
-    for (ObjectInstance objectInstance : this.getSources()) {
+    for (ObjectInstance objectInstance : activeSources) {
       if (objectInstance.containsActivity(element)) {
         continue;
       }
@@ -97,21 +156,219 @@ public class ObjectLifecycleDetector extends TransitionMatrix<ObjectInstance, Ev
     }
 
     // Create new source if no suitable source was found or start transition probability is higher
-    if (this.getTransitionProbability(this.startActivity, this.getTransitionEntryMap().get(element.getName())) > probabilityScore) {
+    if (this.getTransitionProbability(this.startActivity, this.getEntry(element)) > probabilityScore) {
       return null;
     }
 
     return suitableEventInstance;
   }
 
+  private ObjectInstance selectLeastActivityOccurrences(List<ObjectInstance> similarityInstanceCandidates, Event element) {
+    // Identify the first object instance candidate having the minimal number of events with the same activity as the
+    // considered event
+    ObjectInstance selectedInstance = null;
+    int minActivityOccurrences = Integer.MAX_VALUE;
+    for (ObjectInstance instance : similarityInstanceCandidates) {
+      int activityOccurrences = instance.getActivityCount(element.getActivityCode());
+      if (activityOccurrences < minActivityOccurrences) {
+        minActivityOccurrences = activityOccurrences;
+        selectedInstance = instance;
+      }
+    }
+    return selectedInstance;
+  }
+
+  // Same selection as the scan of all instances, but only the instances sharing a value with the event are compared
+  private ObjectInstance findSuitableSource(Event element) {
+    int[] eventValues = this.index.getValues(element);
+    List<ObjectInstance> similarityInstanceCandidates = this.findMostSimilarInstances(element, eventValues);
+    if (similarityInstanceCandidates != null) {
+      return this.selectLeastActivityOccurrences(similarityInstanceCandidates, element);
+    }
+
+    // No instance exceeds the similarity threshold, the candidates are the instances without any similarity
+    int position = this.findDissimilarInstance(element.getActivityCode(), eventValues);
+    if (position >= 0) {
+      return this.index.getInstance(position);
+    }
+
+    // Assign Event based on Activity Transition Probability
+    int target = this.activityEntries[element.getActivityCode()];
+    double probabilityScore = 0;
+    int suitablePosition = -1;
+    for (int lastActivity : this.index.getLastActivities()) {
+      double transitionProbability = this.getTransitionProbability(this.activityEntries[lastActivity], target);
+      if (transitionProbability <= 0 || transitionProbability < probabilityScore) {
+        continue;
+      }
+      // The scan takes the first instance with the highest probability
+      int lastPosition = this.index.firstWithLastActivityWithout(lastActivity, element.getActivityCode());
+      if (lastPosition >= 0 && (transitionProbability > probabilityScore || lastPosition < suitablePosition)) {
+        probabilityScore = transitionProbability;
+        suitablePosition = lastPosition;
+      }
+    }
+
+    // Create new source if no suitable source was found or start transition probability is higher
+    if (this.getTransitionProbability(this.startActivity, target) > probabilityScore || suitablePosition < 0) {
+      return null;
+    }
+    return this.index.getInstance(suitablePosition);
+  }
+
+  /**
+   * Determine the candidates of the instances exceeding the similarity threshold
+   * @param element
+   * @param eventValues
+   * @return candidates in order of the instances, null if no instance exceeds the threshold
+   */
+  private List<ObjectInstance> findMostSimilarInstances(Event element, int[] eventValues) {
+    double highestScore = this.objectClass.getHighestSimilarityScore();
+    if (highestScore == 0) {
+      return null;
+    }
+
+    // The event values of the lowest weights that cannot exceed the threshold together are not searched, as instances
+    // above the threshold share a value of another column with the event
+    List<Integer> eventColumns = new ArrayList<>();
+    for (int column = 0; column < eventValues.length; column++) {
+      if (eventValues[column] != StringDictionary.UNKNOWN) {
+        eventColumns.add(column);
+      }
+    }
+    eventColumns.sort(Comparator.comparingDouble(this.index::getWeight));
+    boolean[] searchedColumns = new boolean[eventValues.length];
+    double unsearchedWeight = 0;
+    double weightLimit = this.similarityThreshold * highestScore * (1 - WEIGHT_TOLERANCE);
+    for (int column : eventColumns) {
+      if (unsearchedWeight + this.index.getWeight(column) <= weightLimit) {
+        unsearchedWeight += this.index.getWeight(column);
+      } else {
+        searchedColumns[column] = true;
+      }
+    }
+
+    int activity = element.getActivityCode();
+    int[] matches = this.index.findMatches(eventValues, searchedColumns);
+    double[] scores = new double[matches.length];
+    double similarityScore = 0;
+    int[] columnValues = matches.length > 0 ? ObjectInstance.findValueCodes(this.columns, element) : null;
+    for (int i = 0; i < matches.length; i++) {
+      // Do not add event to instance with first event having the same activity
+      if (this.index.getFirstActivity(matches[i]) == activity) {
+        scores[i] = -1;
+        continue;
+      }
+      scores[i] = this.index.getInstance(matches[i]).evaluateSimilarity(columnValues);
+      if (scores[i] > this.similarityThreshold && scores[i] > similarityScore) {
+        similarityScore = scores[i];
+      }
+    }
+    if (similarityScore == 0) {
+      return null;
+    }
+
+    // Candidates of the instances with the highest score, restarting when the transition probability from the first
+    // event is higher than the one from the last event of the current candidates
+    int target = this.activityEntries[activity];
+    double similarityTransitionProbability = -1;
+    List<ObjectInstance> similarityInstanceCandidates = new ArrayList<>();
+    for (int i = 0; i < matches.length; i++) {
+      if (scores[i] != similarityScore) {
+        continue;
+      }
+      double lastTransitionProbability = this.getTransitionProbability(this.activityEntries[this.index.getLastActivity(matches[i])], target);
+      if (similarityTransitionProbability < 0) {
+        similarityTransitionProbability = lastTransitionProbability;
+      }
+      if (this.getTransitionProbability(this.activityEntries[this.index.getFirstActivity(matches[i])], target) > similarityTransitionProbability) {
+        similarityTransitionProbability = lastTransitionProbability;
+        similarityInstanceCandidates = new ArrayList<>();
+      }
+      similarityInstanceCandidates.add(this.index.getInstance(matches[i]));
+    }
+    return similarityInstanceCandidates;
+  }
+
+  /**
+   * Select the candidate with the least occurrences of the activity among the instances without any similarity to the
+   * event. The candidates start at the last instance whose first transition is more probable than the last transition
+   * of the candidate before, these restarts are followed from instance to instance of the matching first activities.
+   * @param activity
+   * @param eventValues
+   * @return position of the selected instance, -1 if there are no candidates
+   */
+  private int findDissimilarInstance(int activity, int[] eventValues) {
+    int target = this.activityEntries[activity];
+    int[] firstActivities = this.index.getFirstActivities();
+    // Next dissimilar instance per first activity, -2 if not determined yet
+    int[] nextPositions = new int[firstActivities.length];
+    Arrays.fill(nextPositions, -2);
+
+    double transitionProbability = 0;
+    int candidateStart = 0;
+    int from = 0;
+    while (true) {
+      int restart = -1;
+      for (int i = 0; i < firstActivities.length; i++) {
+        if (firstActivities[i] == activity
+            || this.getTransitionProbability(this.activityEntries[firstActivities[i]], target) <= transitionProbability) {
+          continue;
+        }
+        if (nextPositions[i] == -2 || (nextPositions[i] >= 0 && nextPositions[i] < from)) {
+          int position = this.index.nextWithFirstActivity(firstActivities[i], from);
+          while (position >= 0 && this.index.matches(position, eventValues)) {
+            position = this.index.nextWithFirstActivity(firstActivities[i], position + 1);
+          }
+          nextPositions[i] = position;
+        }
+        if (nextPositions[i] >= 0 && (restart < 0 || nextPositions[i] < restart)) {
+          restart = nextPositions[i];
+        }
+      }
+      if (restart < 0) {
+        break;
+      }
+      candidateStart = restart;
+      transitionProbability = this.getTransitionProbability(this.activityEntries[this.index.getLastActivity(restart)], target);
+      from = restart + 1;
+    }
+
+    // Instances without the activity have the least occurrences
+    for (int position = this.index.nextWithoutActivity(activity, candidateStart); position >= 0;
+         position = this.index.nextWithoutActivity(activity, position + 1)) {
+      if (!this.index.matches(position, eventValues)) {
+        return position;
+      }
+    }
+    int minActivityOccurrences = Integer.MAX_VALUE;
+    int selectedPosition = -1;
+    for (int position = this.index.nextWithOtherFirstActivity(activity, candidateStart); position >= 0;
+         position = this.index.nextWithOtherFirstActivity(activity, position + 1)) {
+      if (this.index.matches(position, eventValues)) {
+        continue;
+      }
+      int activityOccurrences = this.index.getInstance(position).getActivityCount(activity);
+      if (activityOccurrences < minActivityOccurrences) {
+        minActivityOccurrences = activityOccurrences;
+        selectedPosition = position;
+      }
+    }
+    return selectedPosition;
+  }
+
   @Override
   protected ObjectInstance createSource() {
-    return new ObjectInstance(this.objectClass.getAttributes().values().stream().collect(Collectors.toList()), this.objectClass);
+    return new ObjectInstance(this.columns, this.objectClass);
   }
 
   @Override
   protected void postProcessing() {
+    if (!this.updatesObjectClass) {
+      return;
+    }
     this.objectClass.setInstances(this.getSources());
     this.objectClass.setLifecycle(this.getProcess());
+    this.objectClass.setEstimationStop(this.getEstimationStop());
   }
 }
@@ -1,35 +1,36 @@
 package models;
 
-import com.google.common.collect.HashBasedTable;
-import com.google.common.collect.Table;
-
 import java.util.Map;
 
 public class A2AMapping {
 
   private Map<String, Activity> activities;
   private Map<String, Attribute> attributes;
-  private final Table<Activity, Attribute, Integer> activityAttributeRelations;
-
-   public A2AMapping() {
-     this.activityAttributeRelations = HashBasedTable.create();
-   }
-
-   public void incrementActivityToAttributeRelation(Activity activity, Attribute attribute) {
-     if (!this.activityAttributeRelations.contains(activity, attribute)) {
-       this.activityAttributeRelations.put(activity, attribute, 1);
-       return;
-     }
-     int counter = this.activityAttributeRelations.get(activity, attribute);
-     this.activityAttributeRelations.put(activity, attribute, counter + 1);
-   }
-
-   public int getRelationCounter(Activity activity, Attribute attribute) {
-     if (!this.activityAttributeRelations.contains(activity, attribute)) {
-       return 0;
-     }
-     return this.activityAttributeRelations.get(activity, attribute);
-   }
+  private final RelationMatrix activityAttributeRelations;
+
+  public A2AMapping() {
+    this(new RelationMatrix());
+  }
+
+  public A2AMapping(RelationMatrix activityAttributeRelations) {
+    this.activityAttributeRelations = activityAttributeRelations;
+  }
+
+  public void incrementActivityToAttributeRelation(Activity activity, Attribute attribute) {
+    this.activityAttributeRelations.increment(activity.getCode(), attribute.getCode());
+  }
+
+  public void setRelationCounter(Activity activity, Attribute attribute, int counter) {
+    this.activityAttributeRelations.set(activity.getCode(), attribute.getCode(), counter);
+  }
+
+  public int getRelationCounter(Activity activity, Attribute attribute) {
+    return this.activityAttributeRelations.get(activity.getCode(), attribute.getCode());
+  }
+
+  public RelationMatrix getActivityAttributeRelations() {
+    return activityAttributeRelations;
+  }
 
   public Map<String, Activity> getActivities() {
     return activities;
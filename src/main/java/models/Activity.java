@@ -5,10 +5,12 @@ import java.util.List;
 
 public class Activity {
   final String name;
+  final int code;
   List<ActivityAttributeRelation> relations;
 
   public Activity(String name) {
     this.name = name;
+    this.code = EventStore.ACTIVITIES.encode(name);
     this.relations = new ArrayList<>();
   }
 
@@ -16,6 +18,10 @@ public class Activity {
     return name;
   }
 
+  public int getCode() {
+    return code;
+  }
+
   public List<ActivityAttributeRelation> getAttributeRelations() {
     return relations;
   }
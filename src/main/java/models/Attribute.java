@@ -1,26 +1,38 @@
 package models;
 
 import java.util.ArrayList;
-import java.util.HashSet;
 import java.util.List;
-import java.util.Set;
 
 public class Attribute {
   final String name;
+  final int code;
   List<ActivityAttributeRelation> relations;
-  Set<Integer> eventIds;
+  EventIdSet eventIds;
 
   public Attribute(String name) {
     this.name = name;
+    this.code = EventStore.ATTRIBUTES.encode(name);
     this.relations = new ArrayList<>();
-    this.eventIds = new HashSet<>();
+    this.eventIds = new EventIdSet();
+  }
+
+  // Attribute sharing the event ids of previous detections
+  public Attribute(String name, EventIdSet eventIds) {
+    this.name = name;
+    this.code = EventStore.ATTRIBUTES.encode(name);
+    this.relations = new ArrayList<>();
+    this.eventIds = eventIds;
   }
 
   public void addEvent(Event event) {
     this.eventIds.add(event.getId());
   }
 
-  public Set<Integer> getEventIds() {
+  public void addEventId(int eventId) {
+    this.eventIds.add(eventId);
+  }
+
+  public EventIdSet getEventIds() {
     return this.eventIds;
   }
 
@@ -28,6 +40,10 @@ public class Attribute {
     return name;
   }
 
+  public int getCode() {
+    return code;
+  }
+
   public List<ActivityAttributeRelation> getActivityRelations() {
     return relations;
   }
@@ -1,34 +1,75 @@
 package models;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.util.Arrays;
 
 public class Column {
 
   private final String name;
-  private final List<Entry> entries;
+  private final int attributeCode;
+  // Ids of the events having a non-empty value for the attribute and the value codes, in the order of the events
+  private int[] eventIds;
+  private int[] valueCodes;
+  private int size;
   private double similarityWeight;
 
   public Column(String name) {
     this.name = name;
-    this.entries = new ArrayList<>();
+    this.attributeCode = EventStore.ATTRIBUTES.encode(name);
+    this.eventIds = new int[8];
+    this.valueCodes = new int[8];
+    this.size = 0;
     this.similarityWeight = 0;
   }
 
   public int size() {
-    return this.getEntries().size();
+    return size;
   }
 
-  public void add(Event event, String value) {
-    this.entries.add(new Entry(event, value));
+  public void add(Event event, int valueCode) {
+    this.add(event.getId(), valueCode);
+  }
+
+  public void add(int eventId, int valueCode) {
+    this.ensureCapacity(this.size + 1);
+    this.eventIds[this.size] = eventId;
+    this.valueCodes[this.size] = valueCode;
+    this.size++;
+  }
+
+  // Append the values of another column, e.g. collected for a later chunk of events
+  public void addAll(Column column) {
+    this.ensureCapacity(this.size + column.size);
+    System.arraycopy(column.eventIds, 0, this.eventIds, this.size, column.size);
+    System.arraycopy(column.valueCodes, 0, this.valueCodes, this.size, column.size);
+    this.size += column.size;
+  }
+
+  private void ensureCapacity(int capacity) {
+    if (capacity > this.eventIds.length) {
+      int length = Math.max(capacity, this.eventIds.length * 2);
+      this.eventIds = Arrays.copyOf(this.eventIds, length);
+      this.valueCodes = Arrays.copyOf(this.valueCodes, length);
+    }
   }
 
   public String getName() {
     return name;
   }
 
-  public List<Entry> getEntries() {
-    return entries;
+  public int getAttributeCode() {
+    return attributeCode;
+  }
+
+  public int getEventId(int position) {
+    return this.eventIds[position];
+  }
+
+  public int getValueCode(int position) {
+    return this.valueCodes[position];
+  }
+
+  public String getValue(int position) {
+    return EventStore.VALUES.decode(this.valueCodes[position]);
   }
 
   public double getSimilarityWeight() {
@@ -0,0 +1,49 @@
+package models;
+
+import java.util.Arrays;
+
+// Transition table of arrays over all pairs of entries
+public class DenseTransitionTable extends TransitionTable {
+
+  private final int[][] counts;
+  private final double[][] probabilities;
+
+  public DenseTransitionTable(int size) {
+    super(size);
+    this.counts = new int[size][size];
+    this.probabilities = new double[size][size];
+  }
+
+  @Override
+  public void clear() {
+    for (int i = 0; i < this.size; i++) {
+      Arrays.fill(this.counts[i], 0);
+      Arrays.fill(this.probabilities[i], 0);
+    }
+  }
+
+  @Override
+  public void increment(int from, int to) {
+    this.counts[from][to]++;
+  }
+
+  @Override
+  public void normalize() {
+    for (int i = 0; i < this.size; i++) {
+      int[] countRow = this.counts[i];
+      double[] row = this.probabilities[i];
+      long rowSum = 0;
+      for (int count : countRow) {
+        rowSum += count;
+      }
+      for (int j = 0; j < row.length; j++) {
+        row[j] = countRow[j] > 0 ? countRow[j] / (double) rowSum : 0.0;
+      }
+    }
+  }
+
+  @Override
+  public double get(int from, int to) {
+    return this.probabilities[from][to];
+  }
+}
@@ -3,4 +3,5 @@ package models;
 public abstract class EstimationElement {
   abstract String getName();
   abstract int getId();
+  abstract long getTimestamp();
 }
@@ -0,0 +1,11 @@
+package models;
+
+// Reason why the source sequence estimation of a transition matrix stopped
+public enum EstimationStop {
+  // The sources of an earlier iteration repeated
+  CONVERGED,
+  // The maximum number of iterations was reached
+  ITERATION_LIMIT,
+  // The time limit expired, the sources of the last completed iteration are kept
+  TIME_LIMIT
+}
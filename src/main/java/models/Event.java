@@ -1,68 +1,106 @@
 package models;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
 
+// View on a single event of an event store
 public class Event extends EstimationElement {
-    private int id;
-    private String caseId;
-    private Map<String, String> attributes;
-    private Long timestamp;
-    private String activity;
+    private final EventStore store;
+    private final int index;
     private List<ObjectInstance> entityReferences;
 
+    // Creates a standalone event backed by its own store. Convenience for single events only: store-wide operations like
+    // SnapshotCache.storeEvents and EventSorter expect all events in one store, so logs are built via EventStore.append.
     public Event(int id, String caseId, Long timestamp, String activity, Map<String, String> attributes) {
-        this.id = id;
-        this.caseId = caseId;
-        this.activity = activity;
-        this.timestamp = timestamp;
-        this.attributes = attributes;
-        this.entityReferences = new ArrayList<>();
+        this.store = new EventStore(1);
+        this.index = this.store.appendRow(id, caseId, timestamp, activity, attributes);
+        this.store.register(this);
+    }
+
+    Event(EventStore store, int index) {
+        this.store = store;
+        this.index = index;
+    }
+
+    public EventStore getStore() {
+        return store;
+    }
+
+    // Position of the event within its store
+    public int getIndex() {
+        return index;
     }
 
     public String getCaseId() {
-        return caseId;
+        return EventStore.VALUES.decode(this.store.getCaseId(this.index));
     }
 
     public void setCaseId(String caseId) {
-        this.caseId = caseId;
+        this.store.setCaseId(this.index, EventStore.VALUES.encode(caseId));
     }
 
+    // Decoded copy of the optional attributes, use the attribute and value codes on hot paths
     public Map<String, String> getAttributes() {
+        int attributeCount = this.getAttributeCount();
+        Map<String, String> attributes = new HashMap<>();
+        for (int i = 0; i < attributeCount; i++) {
+            attributes.put(EventStore.ATTRIBUTES.decode(this.getAttributeCode(i)), EventStore.VALUES.decode(this.getValueCode(i)));
+        }
         return attributes;
     }
 
-    public void setAttributes(Map<String, String> attributes) {
-        this.attributes = attributes;
+    public int getAttributeCount() {
+        return this.store.getAttributeCount(this.index);
+    }
+
+    public int getAttributeCode(int position) {
+        return this.store.getAttributeCode(this.index, position);
+    }
+
+    public int getValueCode(int position) {
+        return this.store.getValueCode(this.index, position);
+    }
+
+    // Value code of the given attribute or StringDictionary.UNKNOWN if the event does not have the attribute
+    public int findValueCode(int attributeCode) {
+        return this.store.findValueCode(this.index, attributeCode);
     }
 
-    public Long getTimestamp() {
-        return timestamp;
+    public long getTimestamp() {
+        return this.store.getTimestamp(this.index);
     }
 
-    public void setTimestamp(Long timestamp) {
-        this.timestamp = timestamp;
+    public void setTimestamp(long timestamp) {
+        this.store.setTimestamp(this.index, timestamp);
     }
 
     public String getActivity() {
-        return activity;
+        return EventStore.ACTIVITIES.decode(this.getActivityCode());
+    }
+
+    public int getActivityCode() {
+        return this.store.getActivity(this.index);
     }
 
     public void setActivity(String activity) {
-        this.activity = activity;
+        this.store.setActivity(this.index, EventStore.ACTIVITIES.encode(activity));
     }
 
     public int getId() {
-        return id;
+        return this.store.getId(this.index);
     }
 
     public List<ObjectInstance> getInstanceReferences() {
-        return entityReferences;
+        return entityReferences == null ? Collections.emptyList() : entityReferences;
     }
 
     public void addEntityReference(ObjectInstance entityReference) {
+        if (this.entityReferences == null) {
+            this.entityReferences = new ArrayList<>(2);
+        }
         this.entityReferences.add(entityReference);
     }
 
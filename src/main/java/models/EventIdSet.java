@@ -0,0 +1,288 @@
+package models;
+
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+// Compressed set of non-negative event ids in the style of Roaring bitmaps. Ids are grouped by their upper 16 bits into
+// containers that store the lower 16 bits either as sorted array or as bitmap of 1024 words, so subset tests between
+// dense sets compare 64 ids per operation. Unlike Roaring, containers switch to bitmaps at 1024 instead of 4096 ids,
+// trading up to four times the memory of an array container for word-parallel subset tests.
+public class EventIdSet extends AbstractSet<Integer> {
+
+  private static final int ARRAY_LIMIT = 1024;
+  private static final int BITMAP_WORDS = 1024;
+
+  private int[] keys;
+  // Per container either a sorted array of the lower bits or a bitmap, the other one is null
+  private char[][] arrays;
+  private long[][] bitmaps;
+  private int[] cardinalities;
+  private int containerCount;
+  private int size;
+
+  public EventIdSet() {
+    this.keys = new int[4];
+    this.arrays = new char[4][];
+    this.bitmaps = new long[4][];
+    this.cardinalities = new int[4];
+    this.containerCount = 0;
+    this.size = 0;
+  }
+
+  @Override
+  public int size() {
+    return size;
+  }
+
+  @Override
+  public boolean add(Integer id) {
+    return this.add(id.intValue());
+  }
+
+  public boolean add(int id) {
+    if (id < 0) {
+      throw new IllegalArgumentException("Event ids must not be negative");
+    }
+    int key = id >>> 16;
+    char low = (char) id;
+    int index;
+    // Ids are usually added in ascending order and belong to the last container
+    if (this.containerCount > 0 && this.keys[this.containerCount - 1] == key) {
+      index = this.containerCount - 1;
+    } else {
+      index = Arrays.binarySearch(this.keys, 0, this.containerCount, key);
+      if (index < 0) {
+        index = -index - 1;
+        this.insertContainer(index, key);
+      }
+    }
+
+    boolean added = this.bitmaps[index] != null ? this.addToBitmap(index, low) : this.addToArray(index, low);
+    if (added) {
+      this.cardinalities[index]++;
+      this.size++;
+    }
+    return added;
+  }
+
+  private void insertContainer(int index, int key) {
+    if (this.containerCount == this.keys.length) {
+      int capacity = this.keys.length * 2;
+      this.keys = Arrays.copyOf(this.keys, capacity);
+      this.arrays = Arrays.copyOf(this.arrays, capacity);
+      this.bitmaps = Arrays.copyOf(this.bitmaps, capacity);
+      this.cardinalities = Arrays.copyOf(this.cardinalities, capacity);
+    }
+    int moved = this.containerCount - index;
+    System.arraycopy(this.keys, index, this.keys, index + 1, moved);
+    System.arraycopy(this.arrays, index, this.arrays, index + 1, moved);
+    System.arraycopy(this.bitmaps, index, this.bitmaps, index + 1, moved);
+    System.arraycopy(this.cardinalities, index, this.cardinalities, index + 1, moved);
+    this.keys[index] = key;
+    this.arrays[index] = new char[4];
+    this.bitmaps[index] = null;
+    this.cardinalities[index] = 0;
+    this.containerCount++;
+  }
+
+  private boolean addToBitmap(int index, char low) {
+    long[] bitmap = this.bitmaps[index];
+    long bit = 1L << low;
+    if ((bitmap[low >>> 6] & bit) != 0) {
+      return false;
+    }
+    bitmap[low >>> 6] |= bit;
+    return true;
+  }
+
+  private boolean addToArray(int index, char low) {
+    char[] array = this.arrays[index];
+    int cardinality = this.cardinalities[index];
+    int position = cardinality > 0 && array[cardinality - 1] < low ? -cardinality - 1 : Arrays.binarySearch(array, 0, cardinality, low);
+    if (position >= 0) {
+      return false;
+    }
+    if (cardinality == ARRAY_LIMIT) {
+      // Convert to a bitmap once the array is full
+      long[] bitmap = new long[BITMAP_WORDS];
+      for (int i = 0; i < cardinality; i++) {
+        bitmap[array[i] >>> 6] |= 1L << array[i];
+      }
+      this.bitmaps[index] = bitmap;
+      this.arrays[index] = null;
+      return this.addToBitmap(index, low);
+    }
+    position = -position - 1;
+    if (cardinality == array.length) {
+      array = Arrays.copyOf(array, Math.min(ARRAY_LIMIT, cardinality * 2));
+      this.arrays[index] = array;
+    }
+    System.arraycopy(array, position, array, position + 1, cardinality - position);
+    array[position] = low;
+    return true;
+  }
+
+  @Override
+  public boolean contains(Object object) {
+    return object instanceof Integer && this.contains(((Integer) object).intValue());
+  }
+
+  public boolean contains(int id) {
+    if (id < 0) {
+      return false;
+    }
+    int index = Arrays.binarySearch(this.keys, 0, this.containerCount, id >>> 16);
+    return index >= 0 && this.containerContains(index, (char) id);
+  }
+
+  private boolean containerContains(int index, char low) {
+    if (this.bitmaps[index] != null) {
+      return (this.bitmaps[index][low >>> 6] & (1L << low)) != 0;
+    }
+    return Arrays.binarySearch(this.arrays[index], 0, this.cardinalities[index], low) >= 0;
+  }
+
+  @Override
+  public boolean containsAll(Collection<?> collection) {
+    if (collection instanceof EventIdSet) {
+      return this.containsAll((EventIdSet) collection);
+    }
+    return super.containsAll(collection);
+  }
+
+  // Subset test working on whole containers
+  public boolean containsAll(EventIdSet other) {
+    if (other.size > this.size) {
+      return false;
+    }
+    int index = 0;
+    for (int otherIndex = 0; otherIndex < other.containerCount; otherIndex++) {
+      int key = other.keys[otherIndex];
+      while (index < this.containerCount && this.keys[index] < key) {
+        index++;
+      }
+      if (index == this.containerCount || this.keys[index] != key || other.cardinalities[otherIndex] > this.cardinalities[index]) {
+        return false;
+      }
+      if (!this.containerContainsAll(index, other, otherIndex)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private boolean containerContainsAll(int index, EventIdSet other, int otherIndex) {
+    long[] bitmap = this.bitmaps[index];
+    long[] otherBitmap = other.bitmaps[otherIndex];
+    if (bitmap != null && otherBitmap != null) {
+      for (int i = 0; i < BITMAP_WORDS; i++) {
+        if ((otherBitmap[i] & ~bitmap[i]) != 0) {
+          return false;
+        }
+      }
+      return true;
+    }
+    if (otherBitmap != null) {
+      // Not reached while bitmaps hold more ids than arrays, kept for completeness
+      for (int i = 0; i < BITMAP_WORDS; i++) {
+        long word = otherBitmap[i];
+        while (word != 0) {
+          if (!this.containerContains(index, (char) (i * 64 + Long.numberOfTrailingZeros(word)))) {
+            return false;
+          }
+          word &= word - 1;
+        }
+      }
+      return true;
+    }
+    char[] otherArray = other.arrays[otherIndex];
+    int otherCardinality = other.cardinalities[otherIndex];
+    if (bitmap != null) {
+      for (int i = 0; i < otherCardinality; i++) {
+        if ((bitmap[otherArray[i] >>> 6] & (1L << otherArray[i])) == 0) {
+          return false;
+        }
+      }
+      return true;
+    }
+    // Merge both sorted arrays
+    char[] array = this.arrays[index];
+    int cardinality = this.cardinalities[index];
+    int position = 0;
+    for (int i = 0; i < otherCardinality; i++) {
+      while (position < cardinality && array[position] < otherArray[i]) {
+        position++;
+      }
+      if (position == cardinality || array[position] != otherArray[i]) {
+        return false;
+      }
+      position++;
+    }
+    return true;
+  }
+
+  @Override
+  public boolean equals(Object object) {
+    if (object instanceof EventIdSet) {
+      EventIdSet other = (EventIdSet) object;
+      return this.size == other.size && this.containsAll(other);
+    }
+    return super.equals(object);
+  }
+
+  @Override
+  public int hashCode() {
+    return super.hashCode();
+  }
+
+  // Ids in ascending order
+  @Override
+  public Iterator<Integer> iterator() {
+    return new Iterator<Integer>() {
+      private int index = 0;
+      private int position = 0;
+      private int word = -1;
+      private long bits = 0;
+
+      @Override
+      public boolean hasNext() {
+        while (this.index < containerCount) {
+          if (bitmaps[this.index] == null) {
+            if (this.position < cardinalities[this.index]) {
+              return true;
+            }
+          } else {
+            while (this.bits == 0 && this.word + 1 < BITMAP_WORDS) {
+              this.bits = bitmaps[this.index][++this.word];
+            }
+            if (this.bits != 0) {
+              return true;
+            }
+          }
+          this.index++;
+          this.position = 0;
+          this.word = -1;
+          this.bits = 0;
+        }
+        return false;
+      }
+
+      @Override
+      public Integer next() {
+        if (!this.hasNext()) {
+          throw new NoSuchElementException();
+        }
+        int high = keys[this.index] << 16;
+        if (bitmaps[this.index] == null) {
+          return high | arrays[this.index][this.position++];
+        }
+        int low = this.word * 64 + Long.numberOfTrailingZeros(this.bits);
+        this.bits &= this.bits - 1;
+        return high | low;
+      }
+    };
+  }
+}
@@ -12,7 +12,7 @@ public class EventLog extends TransitionMatrix<Trace, ProcessStep> {
   }
 
   public void sortEvents() {
-    this.getSources().forEach(trace -> trace.getEvents().sort(Comparator.comparing(Event::getTimestamp)));
+    this.getSources().forEach(trace -> trace.getEvents().sort(Comparator.comparingLong(Event::getTimestamp)));
   }
 
   @Override
@@ -50,6 +50,11 @@ public class EventLog extends TransitionMatrix<Trace, ProcessStep> {
         }
       }
 
+      // All traces may have been closed by the inactivity timeout
+      if (relevantTraces.isEmpty()) {
+        return null;
+      }
+
       List<Integer> referencedObjectClassIds = element.getInstances().stream().map(instance -> instance.getObjectClass().getId()).collect(Collectors.toList());
       int minInstanceOccurrenceCount = 0;
       int traceInstanceOccurrences = 0;
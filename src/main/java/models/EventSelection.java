@@ -0,0 +1,116 @@
+package models;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.RandomAccess;
+
+// Ordered selection of events from a list, kept as positions in the list instead of references to the events.
+// Selections of more than one in 32 events are kept as bitset, which then needs less memory than the positions.
+public class EventSelection extends AbstractList<Event> implements RandomAccess {
+
+  private static final int BITSET_RATIO = 32;
+
+  private final List<Event> events;
+  private final int size;
+  // Either the ascending positions or a bitset with the number of selected events before each word, the other is null
+  private final int[] positions;
+  private final long[] bits;
+  private final int[] ranks;
+
+  /**
+   * @param events list the events are selected from, should provide random access
+   * @param positions ascending positions of the selected events, read up to the size
+   * @param size
+   */
+  public EventSelection(List<Event> events, int[] positions, int size) {
+    this.events = events;
+    this.size = size;
+    if ((long) size * BITSET_RATIO > events.size()) {
+      this.positions = null;
+      this.bits = new long[(events.size() + 63) >>> 6];
+      for (int i = 0; i < size; i++) {
+        this.bits[positions[i] >>> 6] |= 1L << positions[i];
+      }
+      this.ranks = new int[this.bits.length + 1];
+      for (int word = 0; word < this.bits.length; word++) {
+        this.ranks[word + 1] = this.ranks[word] + Long.bitCount(this.bits[word]);
+      }
+    } else {
+      this.positions = Arrays.copyOf(positions, size);
+      this.bits = null;
+      this.ranks = null;
+    }
+  }
+
+  public boolean isBitset() {
+    return this.bits != null;
+  }
+
+  @Override
+  public int size() {
+    return size;
+  }
+
+  @Override
+  public Event get(int index) {
+    return this.events.get(this.getPosition(index));
+  }
+
+  // Position of the selected event in the list of all events
+  public int getPosition(int index) {
+    if (index < 0 || index >= this.size) {
+      throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + this.size);
+    }
+    if (this.positions != null) {
+      return this.positions[index];
+    }
+    // Last word with fewer selected events before it than the index
+    int low = 0;
+    int high = this.bits.length - 1;
+    while (low < high) {
+      int middle = (low + high + 1) >>> 1;
+      if (this.ranks[middle] <= index) {
+        low = middle;
+      } else {
+        high = middle - 1;
+      }
+    }
+    long word = this.bits[low];
+    for (int i = this.ranks[low]; i < index; i++) {
+      word &= word - 1;
+    }
+    return (low << 6) + Long.numberOfTrailingZeros(word);
+  }
+
+  @Override
+  public Iterator<Event> iterator() {
+    if (this.positions != null) {
+      return super.iterator();
+    }
+    return new Iterator<Event>() {
+      private int word = -1;
+      private long remaining = 0;
+
+      @Override
+      public boolean hasNext() {
+        while (this.remaining == 0 && this.word + 1 < bits.length) {
+          this.remaining = bits[++this.word];
+        }
+        return this.remaining != 0;
+      }
+
+      @Override
+      public Event next() {
+        if (!this.hasNext()) {
+          throw new NoSuchElementException();
+        }
+        int position = (this.word << 6) + Long.numberOfTrailingZeros(this.remaining);
+        this.remaining &= this.remaining - 1;
+        return events.get(position);
+      }
+    };
+  }
+}
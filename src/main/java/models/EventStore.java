@@ -0,0 +1,294 @@
+package models;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+// Columnar storage of events. Activities, attribute names and values (including case ids) are encoded with dictionaries
+// that are shared by all stores, so codes of events from different stores can be compared directly. The optional
+// attributes of each event are stored as (attribute code, value code) pairs sorted by attribute code.
+public class EventStore {
+
+  public static final StringDictionary ACTIVITIES = new StringDictionary();
+  public static final StringDictionary ATTRIBUTES = new StringDictionary();
+  public static final StringDictionary VALUES = new StringDictionary();
+  public static final int EMPTY_VALUE = VALUES.encode("");
+
+  private int size;
+  private int[] ids;
+  private int[] caseIds;
+  private long[] timestamps;
+  private int[] activities;
+  // Attributes of event i are located at [attributeOffsets[i], attributeOffsets[i + 1])
+  private int[] attributeOffsets;
+  private int[] attributeCodes;
+  private int[] valueCodes;
+  private List<Event> events;
+
+  public EventStore() {
+    this(16);
+  }
+
+  public EventStore(int capacity) {
+    capacity = Math.max(1, capacity);
+    this.size = 0;
+    this.ids = new int[capacity];
+    this.caseIds = new int[capacity];
+    this.timestamps = new long[capacity];
+    this.activities = new int[capacity];
+    this.attributeOffsets = new int[capacity + 1];
+    this.attributeCodes = new int[capacity * 4];
+    this.valueCodes = new int[capacity * 4];
+    this.events = new ArrayList<>(capacity);
+  }
+
+  /**
+   * Create a store from complete columns, e.g. when restoring a snapshot
+   * @param ids
+   * @param caseIds
+   * @param timestamps
+   * @param activities
+   * @param attributeOffsets event count + 1 offsets into the attribute and value codes
+   * @param attributeCodes
+   * @param valueCodes
+   * @return
+   */
+  public static EventStore fromColumns(int[] ids, int[] caseIds, long[] timestamps, int[] activities, int[] attributeOffsets, int[] attributeCodes, int[] valueCodes) {
+    EventStore store = new EventStore(0);
+    store.size = ids.length;
+    store.ids = ids;
+    store.caseIds = caseIds;
+    store.timestamps = timestamps;
+    store.activities = activities;
+    store.attributeOffsets = attributeOffsets;
+    store.attributeCodes = attributeCodes;
+    store.valueCodes = valueCodes;
+    store.events = new ArrayList<>(store.size);
+    for (int i = 0; i < store.size; i++) {
+      store.events.add(new Event(store, i));
+    }
+    return store;
+  }
+
+  public Event append(int id, String caseId, long timestamp, String activity, Map<String, String> attributes) {
+    return this.register(new Event(this, this.appendRow(id, caseId, timestamp, activity, attributes)));
+  }
+
+  /**
+   * Append an event given by dictionary codes
+   * @param id
+   * @param caseId
+   * @param timestamp
+   * @param activity
+   * @param attributes attribute codes, read from offset to offset + count
+   * @param values value codes, aligned with the attribute codes
+   * @param offset
+   * @param count
+   * @return view of the appended event
+   */
+  public Event append(int id, int caseId, long timestamp, int activity, int[] attributes, int[] values, int offset, int count) {
+    return this.register(new Event(this, this.appendRow(id, caseId, timestamp, activity, attributes, values, offset, count)));
+  }
+
+  // Used by views that are created before their row exists
+  Event register(Event event) {
+    this.events.add(event);
+    return event;
+  }
+
+  int appendRow(int id, String caseId, long timestamp, String activity, Map<String, String> attributes) {
+    int[] codes = new int[attributes.size()];
+    int[] values = new int[attributes.size()];
+    int count = 0;
+    for (Map.Entry<String, String> attribute : attributes.entrySet()) {
+      codes[count] = ATTRIBUTES.encode(attribute.getKey());
+      values[count] = VALUES.encode(attribute.getValue());
+      count++;
+    }
+    return this.appendRow(id, VALUES.encode(caseId), timestamp, ACTIVITIES.encode(activity), codes, values, 0, count);
+  }
+
+  private int appendRow(int id, int caseId, long timestamp, int activity, int[] attributes, int[] values, int offset, int count) {
+    this.ensureCapacity(this.size + 1, this.attributeOffsets[this.size] + count);
+    this.ids[this.size] = id;
+    this.caseIds[this.size] = caseId;
+    this.timestamps[this.size] = timestamp;
+    this.activities[this.size] = activity;
+
+    int start = this.attributeOffsets[this.size];
+    int end = start;
+    for (int i = offset; i < offset + count; i++) {
+      // Insert sorted by attribute code, a repeated attribute replaces the previous value
+      int position = end;
+      while (position > start && this.attributeCodes[position - 1] > attributes[i]) {
+        position--;
+      }
+      if (position > start && this.attributeCodes[position - 1] == attributes[i]) {
+        this.valueCodes[position - 1] = values[i];
+        continue;
+      }
+      System.arraycopy(this.attributeCodes, position, this.attributeCodes, position + 1, end - position);
+      System.arraycopy(this.valueCodes, position, this.valueCodes, position + 1, end - position);
+      this.attributeCodes[position] = attributes[i];
+      this.valueCodes[position] = values[i];
+      end++;
+    }
+    this.attributeOffsets[this.size + 1] = end;
+    return this.size++;
+  }
+
+  private void ensureCapacity(int eventCapacity, int attributeCapacity) {
+    if (eventCapacity > this.ids.length) {
+      int capacity = Math.max(eventCapacity, this.ids.length * 2);
+      this.ids = Arrays.copyOf(this.ids, capacity);
+      this.caseIds = Arrays.copyOf(this.caseIds, capacity);
+      this.timestamps = Arrays.copyOf(this.timestamps, capacity);
+      this.activities = Arrays.copyOf(this.activities, capacity);
+      this.attributeOffsets = Arrays.copyOf(this.attributeOffsets, capacity + 1);
+    }
+    if (attributeCapacity > this.attributeCodes.length) {
+      int capacity = Math.max(attributeCapacity, this.attributeCodes.length * 2);
+      this.attributeCodes = Arrays.copyOf(this.attributeCodes, capacity);
+      this.valueCodes = Arrays.copyOf(this.valueCodes, capacity);
+    }
+  }
+
+  // Release unused capacity once all events were appended
+  public void trimToSize() {
+    int attributeCount = this.attributeOffsets[this.size];
+    this.ids = Arrays.copyOf(this.ids, this.size);
+    this.caseIds = Arrays.copyOf(this.caseIds, this.size);
+    this.timestamps = Arrays.copyOf(this.timestamps, this.size);
+    this.activities = Arrays.copyOf(this.activities, this.size);
+    this.attributeOffsets = Arrays.copyOf(this.attributeOffsets, this.size + 1);
+    this.attributeCodes = Arrays.copyOf(this.attributeCodes, attributeCount);
+    this.valueCodes = Arrays.copyOf(this.valueCodes, attributeCount);
+    ((ArrayList<Event>) this.events).trimToSize();
+  }
+
+  /**
+   * Reorder the rows, afterwards row i holds the event previously stored at row order[i]. The event views keep their
+   * positions, i.e. getEvents().get(i) refers to the moved row.
+   * @param order permutation of the row indices
+   */
+  public void reorder(int[] order) {
+    if (order.length != this.size) {
+      throw new IllegalArgumentException("The order has to contain every row exactly once");
+    }
+    int[] ids = new int[this.size];
+    int[] caseIds = new int[this.size];
+    long[] timestamps = new long[this.size];
+    int[] activities = new int[this.size];
+    int[] attributeOffsets = new int[this.size + 1];
+    int[] attributeCodes = new int[this.attributeOffsets[this.size]];
+    int[] valueCodes = new int[attributeCodes.length];
+    for (int i = 0; i < this.size; i++) {
+      int row = order[i];
+      ids[i] = this.ids[row];
+      caseIds[i] = this.caseIds[row];
+      timestamps[i] = this.timestamps[row];
+      activities[i] = this.activities[row];
+      int start = this.attributeOffsets[row];
+      int count = this.attributeOffsets[row + 1] - start;
+      System.arraycopy(this.attributeCodes, start, attributeCodes, attributeOffsets[i], count);
+      System.arraycopy(this.valueCodes, start, valueCodes, attributeOffsets[i], count);
+      attributeOffsets[i + 1] = attributeOffsets[i] + count;
+    }
+    this.ids = ids;
+    this.caseIds = caseIds;
+    this.timestamps = timestamps;
+    this.activities = activities;
+    this.attributeOffsets = attributeOffsets;
+    this.attributeCodes = attributeCodes;
+    this.valueCodes = valueCodes;
+  }
+
+  public int size() {
+    return this.size;
+  }
+
+  public List<Event> getEvents() {
+    return this.events;
+  }
+
+  // Backing arrays of the columns, their capacity may exceed the number of events
+
+  public int[] getIdColumn() {
+    return ids;
+  }
+
+  public int[] getCaseIdColumn() {
+    return caseIds;
+  }
+
+  public long[] getTimestampColumn() {
+    return timestamps;
+  }
+
+  public int[] getActivityColumn() {
+    return activities;
+  }
+
+  public int[] getAttributeOffsetColumn() {
+    return attributeOffsets;
+  }
+
+  public int[] getAttributeCodeColumn() {
+    return attributeCodes;
+  }
+
+  public int[] getValueCodeColumn() {
+    return valueCodes;
+  }
+
+  public int getId(int index) {
+    return this.ids[index];
+  }
+
+  public void setId(int index, int id) {
+    this.ids[index] = id;
+  }
+
+  public int getCaseId(int index) {
+    return this.caseIds[index];
+  }
+
+  public void setCaseId(int index, int caseId) {
+    this.caseIds[index] = caseId;
+  }
+
+  public long getTimestamp(int index) {
+    return this.timestamps[index];
+  }
+
+  public void setTimestamp(int index, long timestamp) {
+    this.timestamps[index] = timestamp;
+  }
+
+  public int getActivity(int index) {
+    return this.activities[index];
+  }
+
+  public void setActivity(int index, int activity) {
+    this.activities[index] = activity;
+  }
+
+  public int getAttributeCount(int index) {
+    return this.attributeOffsets[index + 1] - this.attributeOffsets[index];
+  }
+
+  public int getAttributeCode(int index, int position) {
+    return this.attributeCodes[this.attributeOffsets[index] + position];
+  }
+
+  public int getValueCode(int index, int position) {
+    return this.valueCodes[this.attributeOffsets[index] + position];
+  }
+
+  // Value code of the given attribute or StringDictionary.UNKNOWN if the event does not have the attribute
+  public int findValueCode(int index, int attributeCode) {
+    int position = Arrays.binarySearch(this.attributeCodes, this.attributeOffsets[index], this.attributeOffsets[index + 1], attributeCode);
+    return position < 0 ? StringDictionary.UNKNOWN : this.valueCodes[position];
+  }
+}
@@ -0,0 +1,86 @@
+package models;
+
+// HyperLogLog sketch estimating the number of distinct int values, e.g. value codes of a column, in a fixed number of
+// registers. Sketches of the same precision can be merged, so parts of a column can be sketched in parallel.
+// Concept inspired by: Flajolet et al., HyperLogLog: the analysis of a near-optimal cardinality estimation algorithm
+public class HyperLogLog {
+
+  public static final int MIN_PRECISION = 4;
+  public static final int MAX_PRECISION = 18;
+
+  private final int precision;
+  private final byte[] registers;
+
+  /**
+   * @param precision number of index bits, the sketch has 2^precision registers
+   */
+  public HyperLogLog(int precision) {
+    if (precision < MIN_PRECISION || precision > MAX_PRECISION) {
+      throw new IllegalArgumentException("Precision must be between " + MIN_PRECISION + " and " + MAX_PRECISION);
+    }
+    this.precision = precision;
+    this.registers = new byte[1 << precision];
+  }
+
+  // Smallest precision whose standard error 1.04 / sqrt(2^precision) does not exceed the relative error
+  public static int precisionFor(double relativeError) {
+    int precision = MIN_PRECISION;
+    while (precision < MAX_PRECISION && 1.04 / Math.sqrt(1 << precision) > relativeError) {
+      precision++;
+    }
+    return precision;
+  }
+
+  public void add(int value) {
+    long hash = hash(value);
+    int index = (int) (hash >>> (64 - this.precision));
+    // The index bits are shifted out, the appended bit limits the rank
+    long remaining = (hash << this.precision) | (1L << (this.precision - 1));
+    byte rank = (byte) (Long.numberOfLeadingZeros(remaining) + 1);
+    if (rank > this.registers[index]) {
+      this.registers[index] = rank;
+    }
+  }
+
+  public void merge(HyperLogLog other) {
+    if (other.precision != this.precision) {
+      throw new IllegalArgumentException("Sketches of different precision cannot be merged");
+    }
+    for (int i = 0; i < this.registers.length; i++) {
+      if (other.registers[i] > this.registers[i]) {
+        this.registers[i] = other.registers[i];
+      }
+    }
+  }
+
+  public double estimate() {
+    int registerCount = this.registers.length;
+    double sum = 0;
+    int emptyRegisters = 0;
+    for (byte register : this.registers) {
+      sum += Math.scalb(1.0, -register);
+      if (register == 0) {
+        emptyRegisters++;
+      }
+    }
+    double alpha = registerCount == 16 ? 0.673 : registerCount == 32 ? 0.697 : registerCount == 64 ? 0.709 : 0.7213 / (1 + 1.079 / registerCount);
+    double estimate = alpha * registerCount * registerCount / sum;
+    // Linear counting is more accurate for small cardinalities
+    if (estimate <= 2.5 * registerCount && emptyRegisters > 0) {
+      return registerCount * Math.log((double) registerCount / emptyRegisters);
+    }
+    return estimate;
+  }
+
+  public int getPrecision() {
+    return precision;
+  }
+
+  // SplitMix64 finalizer, dictionary codes are consecutive numbers that need to be spread over all bits
+  private static long hash(int value) {
+    long z = (value + 1L) * 0x9E3779B97F4A7C15L;
+    z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+    z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+    return z ^ (z >>> 31);
+  }
+}
@@ -0,0 +1,329 @@
+package models;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Index of the object instances built during one source sequence estimation, addressed by their position in the list
+// of sources. It keeps the first and last activity of each instance, the activities it contains and its latest value of
+// each weighted column. Posting lists from (column, value) to positions find the instances sharing a value with an
+// event without comparing every instance. Postings are not removed when an instance changes a value, stale positions
+// are skipped and compacted when a list is read.
+public class InstanceIndex {
+
+  private final int[] attributeCodes;
+  private final double[] weights;
+  private final List<ObjectInstance> instances;
+  private final IntIntMap positions;
+  private int[] firstActivities;
+  private int[] lastActivities;
+  // Latest value code per weighted column and position, StringDictionary.UNKNOWN if the instance has none
+  private int[][] values;
+  private final Map<Long, PositionList> postings;
+  private final Map<Integer, Bits> firstActivityInstances;
+  private final Map<Integer, Bits> lastActivityInstances;
+  private final Map<Integer, Bits> activityInstances;
+  // Instances removed from the candidates, e.g. after a period of inactivity
+  private final Bits removedInstances;
+  // Marks the positions already collected by the current lookup
+  private int[] stamps;
+  private int stamp;
+
+  /**
+   * @param columns columns compared by the similarity of an instance and an event, columns without weight are ignored
+   */
+  public InstanceIndex(List<Column> columns) {
+    List<Column> weightedColumns = new ArrayList<>();
+    for (Column column : columns) {
+      if (column.getSimilarityWeight() > 0) {
+        weightedColumns.add(column);
+      }
+    }
+    this.attributeCodes = new int[weightedColumns.size()];
+    this.weights = new double[weightedColumns.size()];
+    for (int i = 0; i < weightedColumns.size(); i++) {
+      this.attributeCodes[i] = weightedColumns.get(i).getAttributeCode();
+      this.weights[i] = weightedColumns.get(i).getSimilarityWeight();
+    }
+    this.instances = new ArrayList<>();
+    this.positions = new IntIntMap();
+    this.firstActivities = new int[16];
+    this.lastActivities = new int[16];
+    this.values = new int[this.attributeCodes.length][16];
+    this.postings = new HashMap<>();
+    this.firstActivityInstances = new HashMap<>();
+    this.lastActivityInstances = new HashMap<>();
+    this.activityInstances = new HashMap<>();
+    this.removedInstances = new Bits();
+    this.stamps = new int[16];
+    this.stamp = 0;
+  }
+
+  // Register an event added to an instance, new instances are appended at the next position
+  public void add(ObjectInstance instance, Event event) {
+    int activity = event.getActivityCode();
+    int position = this.positions.get(instance.getId(), -1);
+    if (position < 0) {
+      position = this.instances.size();
+      this.positions.put(instance.getId(), position);
+      this.instances.add(instance);
+      this.ensureCapacity(position + 1);
+      this.firstActivities[position] = activity;
+      this.bits(this.firstActivityInstances, activity).set(position);
+      for (int[] columnValues : this.values) {
+        columnValues[position] = StringDictionary.UNKNOWN;
+      }
+    } else {
+      this.lastActivityInstances.get(this.lastActivities[position]).clear(position);
+    }
+    this.lastActivities[position] = activity;
+    this.bits(this.lastActivityInstances, activity).set(position);
+    this.bits(this.activityInstances, activity).set(position);
+
+    for (int column = 0; column < this.attributeCodes.length; column++) {
+      int value = event.findValueCode(this.attributeCodes[column]);
+      if (value != StringDictionary.UNKNOWN && this.values[column][position] != value) {
+        this.values[column][position] = value;
+        this.postings.computeIfAbsent(key(column, value), key -> new PositionList()).add(position);
+      }
+    }
+  }
+
+  // Exclude an instance from all lookups, its position remains reserved
+  public void remove(ObjectInstance instance) {
+    int position = this.positions.get(instance.getId(), -1);
+    if (position < 0) {
+      return;
+    }
+    this.removedInstances.set(position);
+    this.firstActivityInstances.get(this.firstActivities[position]).clear(position);
+    this.lastActivityInstances.get(this.lastActivities[position]).clear(position);
+    // Postings of the values become stale and are compacted by the next lookups
+    for (int[] columnValues : this.values) {
+      columnValues[position] = StringDictionary.UNKNOWN;
+    }
+  }
+
+  private void ensureCapacity(int capacity) {
+    if (capacity <= this.firstActivities.length) {
+      return;
+    }
+    int newCapacity = Math.max(capacity, this.firstActivities.length * 2);
+    this.firstActivities = Arrays.copyOf(this.firstActivities, newCapacity);
+    this.lastActivities = Arrays.copyOf(this.lastActivities, newCapacity);
+    for (int column = 0; column < this.values.length; column++) {
+      this.values[column] = Arrays.copyOf(this.values[column], newCapacity);
+    }
+    this.stamps = Arrays.copyOf(this.stamps, newCapacity);
+  }
+
+  private Bits bits(Map<Integer, Bits> activityBits, int activity) {
+    return activityBits.computeIfAbsent(activity, key -> new Bits());
+  }
+
+  private static long key(int column, int value) {
+    return ((long) column << 32) | (value & 0xFFFFFFFFL);
+  }
+
+  public int size() {
+    return this.instances.size();
+  }
+
+  public ObjectInstance getInstance(int position) {
+    return this.instances.get(position);
+  }
+
+  public int getFirstActivity(int position) {
+    return this.firstActivities[position];
+  }
+
+  public int getLastActivity(int position) {
+    return this.lastActivities[position];
+  }
+
+  public double getWeight(int column) {
+    return this.weights[column];
+  }
+
+  // Value code of the event per weighted column, StringDictionary.UNKNOWN if the event does not have the attribute
+  public int[] getValues(Event event) {
+    int[] eventValues = new int[this.attributeCodes.length];
+    for (int column = 0; column < this.attributeCodes.length; column++) {
+      eventValues[column] = event.findValueCode(this.attributeCodes[column]);
+    }
+    return eventValues;
+  }
+
+  // Whether the instance shares the value of any weighted column with the event, i.e. has a similarity above 0
+  public boolean matches(int position, int[] eventValues) {
+    for (int column = 0; column < eventValues.length; column++) {
+      if (eventValues[column] != StringDictionary.UNKNOWN && this.values[column][position] == eventValues[column]) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Find the instances sharing the value of at least one of the selected columns with the event
+   * @param eventValues
+   * @param selectedColumns
+   * @return ascending positions
+   */
+  public int[] findMatches(int[] eventValues, boolean[] selectedColumns) {
+    this.stamp++;
+    int[] matches = new int[16];
+    int matchCount = 0;
+    for (int column = 0; column < eventValues.length; column++) {
+      int value = eventValues[column];
+      if (!selectedColumns[column] || value == StringDictionary.UNKNOWN) {
+        continue;
+      }
+      PositionList postingList = this.postings.get(key(column, value));
+      if (postingList == null) {
+        continue;
+      }
+      int[] columnValues = this.values[column];
+      int kept = 0;
+      for (int i = 0; i < postingList.size; i++) {
+        int position = postingList.positions[i];
+        if (columnValues[position] != value) {
+          continue;
+        }
+        postingList.positions[kept++] = position;
+        if (this.stamps[position] != this.stamp) {
+          this.stamps[position] = this.stamp;
+          if (matchCount == matches.length) {
+            matches = Arrays.copyOf(matches, matchCount * 2);
+          }
+          matches[matchCount++] = position;
+        }
+      }
+      postingList.size = kept;
+    }
+    matches = Arrays.copyOf(matches, matchCount);
+    Arrays.sort(matches);
+    return matches;
+  }
+
+  // Activity codes that are the first activity of an instance
+  public int[] getFirstActivities() {
+    return this.firstActivityInstances.keySet().stream().mapToInt(Integer::intValue).toArray();
+  }
+
+  // Activity codes that are the last activity of an instance
+  public int[] getLastActivities() {
+    return this.lastActivityInstances.keySet().stream().mapToInt(Integer::intValue).toArray();
+  }
+
+  // First position from the given one of an instance starting with the activity, -1 if there is none
+  public int nextWithFirstActivity(int activity, int from) {
+    Bits bits = this.firstActivityInstances.get(activity);
+    return bits == null ? -1 : bits.nextSetBit(from);
+  }
+
+  // First position from the given one of an instance not containing the activity, -1 if there is none
+  public int nextWithoutActivity(int activity, int from) {
+    int position = this.removedInstances.nextClearBit(from, this.activityInstances.get(activity));
+    return position < this.instances.size() ? position : -1;
+  }
+
+  // First position of an instance not starting with the activity, -1 if there is none
+  public int nextWithOtherFirstActivity(int activity, int from) {
+    int position = this.removedInstances.nextClearBit(from, this.firstActivityInstances.get(activity));
+    return position < this.instances.size() ? position : -1;
+  }
+
+  // First position of an instance ending with the last activity and not containing the other activity, -1 if there is none
+  public int firstWithLastActivityWithout(int lastActivity, int activity) {
+    Bits lastBits = this.lastActivityInstances.get(lastActivity);
+    if (lastBits == null) {
+      return -1;
+    }
+    Bits excludedBits = this.activityInstances.get(activity);
+    return excludedBits == null ? lastBits.nextSetBit(0) : lastBits.firstSetBitNotIn(excludedBits);
+  }
+
+  private static class PositionList {
+    private int[] positions = new int[4];
+    private int size = 0;
+
+    private void add(int position) {
+      if (this.size == this.positions.length) {
+        this.positions = Arrays.copyOf(this.positions, this.size * 2);
+      }
+      this.positions[this.size++] = position;
+    }
+  }
+
+  // Growable bitset with direct access to the words for the combined search
+  private static class Bits {
+    private static final long[] NO_WORDS = new long[0];
+
+    private long[] words = new long[4];
+
+    private void set(int index) {
+      int word = index >>> 6;
+      if (word >= this.words.length) {
+        this.words = Arrays.copyOf(this.words, Math.max(word + 1, this.words.length * 2));
+      }
+      this.words[word] |= 1L << index;
+    }
+
+    private void clear(int index) {
+      int word = index >>> 6;
+      if (word < this.words.length) {
+        this.words[word] &= ~(1L << index);
+      }
+    }
+
+    private int nextSetBit(int from) {
+      int word = from >>> 6;
+      if (word >= this.words.length) {
+        return -1;
+      }
+      long bits = this.words[word] & (-1L << from);
+      while (bits == 0) {
+        if (++word == this.words.length) {
+          return -1;
+        }
+        bits = this.words[word];
+      }
+      return (word << 6) + Long.numberOfTrailingZeros(bits);
+    }
+
+    // First index from the given one that is clear in this and the other bitset, which may be null
+    private int nextClearBit(int from, Bits other) {
+      int word = from >>> 6;
+      long[] otherWords = other == null ? NO_WORDS : other.words;
+      int wordCount = Math.max(this.words.length, otherWords.length);
+      if (word >= wordCount) {
+        return from;
+      }
+      long bits = ~(this.word(word) | (word < otherWords.length ? otherWords[word] : 0L)) & (-1L << from);
+      while (bits == 0) {
+        if (++word == wordCount) {
+          return word << 6;
+        }
+        bits = ~(this.word(word) | (word < otherWords.length ? otherWords[word] : 0L));
+      }
+      return (word << 6) + Long.numberOfTrailingZeros(bits);
+    }
+
+    private long word(int word) {
+      return word < this.words.length ? this.words[word] : 0L;
+    }
+
+    private int firstSetBitNotIn(Bits other) {
+      for (int word = 0; word < this.words.length; word++) {
+        long bits = this.words[word] & ~(word < other.words.length ? other.words[word] : 0L);
+        if (bits != 0) {
+          return (word << 6) + Long.numberOfTrailingZeros(bits);
+        }
+      }
+      return -1;
+    }
+  }
+}
@@ -0,0 +1,115 @@
+package models;
+
+import java.util.Arrays;
+
+// Open addressing hash map from int keys to int values without boxing. Integer.MIN_VALUE is reserved to mark free slots
+// and can not be used as key.
+public class IntIntMap {
+
+  private static final int FREE = Integer.MIN_VALUE;
+
+  private int[] keys;
+  private int[] values;
+  private int size;
+
+  public IntIntMap() {
+    this(8);
+  }
+
+  public IntIntMap(int expectedSize) {
+    int capacity = Integer.highestOneBit(Math.max(4, expectedSize * 2 - 1)) << 1;
+    this.keys = new int[capacity];
+    this.values = new int[capacity];
+    Arrays.fill(this.keys, FREE);
+    this.size = 0;
+  }
+
+  private int slot(int key) {
+    int hash = key * 0x9e3779b9;
+    int mask = this.keys.length - 1;
+    int slot = (hash ^ (hash >>> 16)) & mask;
+    while (this.keys[slot] != FREE && this.keys[slot] != key) {
+      slot = (slot + 1) & mask;
+    }
+    return slot;
+  }
+
+  public int get(int key, int defaultValue) {
+    int slot = this.slot(key);
+    return this.keys[slot] == FREE ? defaultValue : this.values[slot];
+  }
+
+  public boolean containsKey(int key) {
+    return this.keys[this.slot(key)] != FREE;
+  }
+
+  public void put(int key, int value) {
+    if (key == FREE) {
+      throw new IllegalArgumentException("Invalid key " + key);
+    }
+    int slot = this.slot(key);
+    if (this.keys[slot] == FREE) {
+      this.keys[slot] = key;
+      this.size++;
+      this.values[slot] = value;
+      this.ensureCapacity();
+      return;
+    }
+    this.values[slot] = value;
+  }
+
+  // Add the delta to the value of the key (0 if absent) and return the new value
+  public int add(int key, int delta) {
+    if (key == FREE) {
+      throw new IllegalArgumentException("Invalid key " + key);
+    }
+    int slot = this.slot(key);
+    if (this.keys[slot] == FREE) {
+      this.keys[slot] = key;
+      this.values[slot] = delta;
+      this.size++;
+      this.ensureCapacity();
+      return delta;
+    }
+    return this.values[slot] += delta;
+  }
+
+  private void ensureCapacity() {
+    if (this.size * 2 <= this.keys.length) {
+      return;
+    }
+    int[] oldKeys = this.keys;
+    int[] oldValues = this.values;
+    this.keys = new int[oldKeys.length * 2];
+    this.values = new int[oldKeys.length * 2];
+    Arrays.fill(this.keys, FREE);
+    for (int i = 0; i < oldKeys.length; i++) {
+      if (oldKeys[i] != FREE) {
+        int slot = this.slot(oldKeys[i]);
+        this.keys[slot] = oldKeys[i];
+        this.values[slot] = oldValues[i];
+      }
+    }
+  }
+
+  public int size() {
+    return size;
+  }
+
+  public void clear() {
+    Arrays.fill(this.keys, FREE);
+    this.size = 0;
+  }
+
+  // Keys in unspecified order
+  public int[] keys() {
+    int[] result = new int[this.size];
+    int count = 0;
+    for (int key : this.keys) {
+      if (key != FREE) {
+        result[count++] = key;
+      }
+    }
+    return result;
+  }
+}
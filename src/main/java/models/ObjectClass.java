@@ -14,6 +14,7 @@ public class ObjectClass {
   private Map<String, Column> attributes;
   private double highestSimilarityScore;
   private String lifecycle;
+  private EstimationStop estimationStop;
 
   public ObjectClass(int id, String name, List<String> attributeNames) {
     this.id = id;
@@ -80,6 +81,14 @@ public class ObjectClass {
     this.lifecycle = lifecycle;
   }
 
+  public EstimationStop getEstimationStop() {
+    return estimationStop;
+  }
+
+  public void setEstimationStop(EstimationStop estimationStop) {
+    this.estimationStop = estimationStop;
+  }
+
   public int getId() {
     return id;
   }
@@ -1,8 +1,7 @@
 package models;
 
+import java.util.Arrays;
 import java.util.List;
-import java.util.Map;
-import java.util.HashMap;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
 
@@ -22,12 +21,17 @@ public class ObjectInstance extends SourceSequence<Event> {
   }
 
   private final int id;
-  private final Map<String, String> state;
+  // Latest value code per column of the object class, StringDictionary.UNKNOWN if no event had a value yet
+  private final int[] state;
+  // Number of events per activity code
+  private final IntIntMap activityCounts;
   private final List<Column> columns;
   private final ObjectClass objectClass;
 
   public ObjectInstance(List<Column> columns, ObjectClass objectClass) {
-    this.state = new HashMap<>();
+    this.state = new int[columns.size()];
+    Arrays.fill(this.state, StringDictionary.UNKNOWN);
+    this.activityCounts = new IntIntMap(4);
     this.id = ObjectInstance.assignId();
     this.objectClass = objectClass;
     this.columns = columns;
@@ -36,23 +40,43 @@ public class ObjectInstance extends SourceSequence<Event> {
   @Override
   public void add(Event event) {
     super.add(event);
-    event.getAttributes().entrySet().forEach(entry -> {
-      this.state.put(entry.getKey(), entry.getValue());
-    });
+    this.activityCounts.add(event.getActivityCode(), 1);
+    // Attributes of other object classes are not part of the state
+    for (int i = 0; i < this.state.length; i++) {
+      int value = event.findValueCode(this.columns.get(i).getAttributeCode());
+      if (value != StringDictionary.UNKNOWN) {
+        this.state[i] = value;
+      }
+    }
+  }
+
+  // Value codes of the event in the order of the columns, StringDictionary.UNKNOWN if the event does not have the attribute
+  public static int[] findValueCodes(List<Column> columns, Event event) {
+    int[] values = new int[columns.size()];
+    for (int i = 0; i < values.length; i++) {
+      values[i] = event.findValueCode(columns.get(i).getAttributeCode());
+    }
+    return values;
   }
 
   public double evaluateSimilarity(Event event) {
+    return this.evaluateSimilarity(findValueCodes(this.columns, event));
+  }
+
+  /**
+   * @param eventValues value codes of the event in the order of the columns of this instance, see findValueCodes
+   * @return
+   */
+  public double evaluateSimilarity(int[] eventValues) {
     if (this.getObjectClass().getHighestSimilarityScore() == 0) {
       return 0;
     }
 
     double score = 0;
 
-    for (Column column : this.getColumns()) {
-      String eventValue = event.getAttributes().get(column.getName());
-      String instanceValue = this.getState().get(column.getName());
-      if (eventValue != null && eventValue.equals(instanceValue)) {
-        score += column.getSimilarityWeight();
+    for (int i = 0; i < this.state.length; i++) {
+      if (eventValues[i] != StringDictionary.UNKNOWN && this.state[i] == eventValues[i]) {
+        score += this.columns.get(i).getSimilarityWeight();
       }
     }
 
@@ -64,14 +88,18 @@ public class ObjectInstance extends SourceSequence<Event> {
   }
 
   public boolean containsActivity(Event event) {
-    return this.getElements().stream().anyMatch(instanceEvent -> instanceEvent.getActivity().equals(event.getActivity()));
+    return this.activityCounts.containsKey(event.getActivityCode());
+  }
+
+  public int getActivityCount(int activityCode) {
+    return this.activityCounts.get(activityCode, 0);
   }
 
   public int getId() {
     return id;
   }
 
-  public Map<String, String> getState() {
+  public int[] getState() {
     return state;
   }
 
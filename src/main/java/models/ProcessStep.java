@@ -1,7 +1,7 @@
 package models;
 
+import java.util.Arrays;
 import java.util.List;
-import java.util.stream.Collectors;
 
 public class ProcessStep extends EstimationElement {
 
@@ -10,12 +10,21 @@ public class ProcessStep extends EstimationElement {
 
   public ProcessStep(Event event) {
     this.event = event;
-    String objectClassIds = this.getInstances()
-        .stream()
-        .map(instance -> String.valueOf(instance.getObjectClass().getId()))
-        .sorted()
-        .collect(Collectors.joining("|"));
-    this.name = event.getActivity() + "-" + objectClassIds;
+    // Activity and the ids of the referenced object classes in the order of their strings
+    List<ObjectInstance> instances = this.getInstances();
+    String[] objectClassIds = new String[instances.size()];
+    for (int i = 0; i < objectClassIds.length; i++) {
+      objectClassIds[i] = String.valueOf(instances.get(i).getObjectClass().getId());
+    }
+    Arrays.sort(objectClassIds);
+    StringBuilder name = new StringBuilder(event.getActivity()).append('-');
+    for (int i = 0; i < objectClassIds.length; i++) {
+      if (i > 0) {
+        name.append('|');
+      }
+      name.append(objectClassIds[i]);
+    }
+    this.name = name.toString();
   }
 
   public Event getEvent() {
@@ -31,6 +40,11 @@ public class ProcessStep extends EstimationElement {
     return this.name;
   }
 
+  @Override
+  public long getTimestamp() {
+    return this.event.getTimestamp();
+  }
+
   @Override
   public int getId() {
     return this.event.getId();
@@ -0,0 +1,166 @@
+package models;
+
+import java.util.Arrays;
+
+// Number of events relating activities to attributes, indexed by activity and attribute codes. Each activity has a
+// dense row of counters, or a hash map of its non-zero counters for wide schemas where dense rows would mostly hold
+// zeros. Matrices filled for separate chunks of events can be merged.
+public class RelationMatrix {
+
+  // Schemas with more attributes use sparse rows
+  public static final int DENSE_ATTRIBUTE_LIMIT = 1024;
+
+  private final boolean sparse;
+  private int attributeBound;
+  private int[][] denseRows;
+  private IntIntMap[] sparseRows;
+
+  // Matrix for the attributes encoded so far
+  public RelationMatrix() {
+    this(EventStore.ATTRIBUTES.size());
+  }
+
+  /**
+   * @param attributeBound expected upper bound of the attribute codes, larger codes are still accepted
+   */
+  public RelationMatrix(int attributeBound) {
+    this(attributeBound, attributeBound > DENSE_ATTRIBUTE_LIMIT);
+  }
+
+  public RelationMatrix(int attributeBound, boolean sparse) {
+    this.sparse = sparse;
+    this.attributeBound = Math.max(1, attributeBound);
+    this.denseRows = new int[sparse ? 0 : 16][];
+    this.sparseRows = new IntIntMap[sparse ? 16 : 0];
+  }
+
+  public boolean isSparse() {
+    return sparse;
+  }
+
+  public void increment(int activityCode, int attributeCode) {
+    this.add(activityCode, attributeCode, 1);
+  }
+
+  public void add(int activityCode, int attributeCode, int count) {
+    if (this.sparse) {
+      this.sparseRow(activityCode).add(attributeCode, count);
+    } else {
+      this.denseRow(activityCode, attributeCode)[attributeCode] += count;
+    }
+  }
+
+  public void set(int activityCode, int attributeCode, int count) {
+    if (this.sparse) {
+      this.sparseRow(activityCode).put(attributeCode, count);
+    } else {
+      this.denseRow(activityCode, attributeCode)[attributeCode] = count;
+    }
+  }
+
+  public int get(int activityCode, int attributeCode) {
+    if (this.sparse) {
+      IntIntMap row = activityCode < this.sparseRows.length ? this.sparseRows[activityCode] : null;
+      return row == null ? 0 : row.get(attributeCode, 0);
+    }
+    int[] row = activityCode < this.denseRows.length ? this.denseRows[activityCode] : null;
+    return row == null || attributeCode >= row.length ? 0 : row[attributeCode];
+  }
+
+  // Codes of the attributes with a non-zero count for the activity in ascending order
+  public int[] getAttributeCodes(int activityCode) {
+    if (this.sparse) {
+      IntIntMap row = activityCode < this.sparseRows.length ? this.sparseRows[activityCode] : null;
+      if (row == null) {
+        return new int[0];
+      }
+      int[] codes = row.keys();
+      int count = 0;
+      for (int code : codes) {
+        if (row.get(code, 0) != 0) {
+          codes[count++] = code;
+        }
+      }
+      codes = Arrays.copyOf(codes, count);
+      Arrays.sort(codes);
+      return codes;
+    }
+    int[] row = activityCode < this.denseRows.length ? this.denseRows[activityCode] : null;
+    if (row == null) {
+      return new int[0];
+    }
+    int count = 0;
+    for (int value : row) {
+      if (value != 0) {
+        count++;
+      }
+    }
+    int[] codes = new int[count];
+    count = 0;
+    for (int code = 0; code < row.length; code++) {
+      if (row[code] != 0) {
+        codes[count++] = code;
+      }
+    }
+    return codes;
+  }
+
+  // Upper bound of the activity codes having counts
+  public int getActivityBound() {
+    return this.sparse ? this.sparseRows.length : this.denseRows.length;
+  }
+
+  /**
+   * Add the counts of the other matrix
+   * @param other
+   * @param activityMapping maps the activity codes of the other matrix to the codes of this matrix, null if identical
+   */
+  public void merge(RelationMatrix other, int[] activityMapping) {
+    for (int activityCode = 0; activityCode < other.getActivityBound(); activityCode++) {
+      if (other.sparse && other.sparseRows[activityCode] != null) {
+        IntIntMap row = other.sparseRows[activityCode];
+        int targetCode = activityMapping == null ? activityCode : activityMapping[activityCode];
+        for (int attributeCode : row.keys()) {
+          this.add(targetCode, attributeCode, row.get(attributeCode, 0));
+        }
+      } else if (!other.sparse && other.denseRows[activityCode] != null) {
+        int[] row = other.denseRows[activityCode];
+        int targetCode = activityMapping == null ? activityCode : activityMapping[activityCode];
+        for (int attributeCode = 0; attributeCode < row.length; attributeCode++) {
+          if (row[attributeCode] != 0) {
+            this.add(targetCode, attributeCode, row[attributeCode]);
+          }
+        }
+      }
+    }
+  }
+
+  private int[] denseRow(int activityCode, int attributeCode) {
+    if (activityCode >= this.denseRows.length) {
+      this.denseRows = Arrays.copyOf(this.denseRows, Math.max(activityCode + 1, this.denseRows.length * 2));
+    }
+    int[] row = this.denseRows[activityCode];
+    if (row == null) {
+      this.attributeBound = Math.max(this.attributeBound, attributeCode + 1);
+      row = new int[this.attributeBound];
+      this.denseRows[activityCode] = row;
+    } else if (attributeCode >= row.length) {
+      this.attributeBound = Math.max(attributeCode + 1, row.length * 2);
+      row = Arrays.copyOf(row, this.attributeBound);
+      this.denseRows[activityCode] = row;
+    }
+    return row;
+  }
+
+  private IntIntMap sparseRow(int activityCode) {
+    if (activityCode >= this.sparseRows.length) {
+      this.sparseRows = Arrays.copyOf(this.sparseRows, Math.max(activityCode + 1, this.sparseRows.length * 2));
+    }
+    IntIntMap row = this.sparseRows[activityCode];
+    if (row == null) {
+      row = new IntIntMap();
+      this.sparseRows[activityCode] = row;
+    }
+    return row;
+  }
+}
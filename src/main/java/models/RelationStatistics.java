@@ -0,0 +1,169 @@
+package models;
+
+import java.util.Arrays;
+
+// Number of events relating each activity to each attribute and the events of each attribute, collected while the
+// events are imported, so the schema detection does not need additional passes over the events. Activities and
+// attributes are indexed in the order of their first occurrence, attributes of an event in the order of their codes.
+public class RelationStatistics {
+
+  private int[] activityCodes;
+  private int[] activityIndices;
+  private int activityCount;
+  private int[] attributeCodes;
+  private int[] attributeIndices;
+  private int attributeCount;
+  private final RelationMatrix relations;
+  private int[][] eventIds;
+  private int[] eventCounts;
+  private int[] rowBuffer;
+
+  public RelationStatistics() {
+    this(EventStore.ATTRIBUTES.size());
+  }
+
+  /**
+   * @param attributeBound expected upper bound of the attribute codes
+   */
+  public RelationStatistics(int attributeBound) {
+    this.relations = new RelationMatrix(attributeBound);
+    this.activityCodes = new int[16];
+    this.activityIndices = new int[0];
+    this.activityCount = 0;
+    this.attributeCodes = new int[16];
+    this.attributeIndices = new int[0];
+    this.attributeCount = 0;
+    this.eventIds = new int[16][];
+    this.eventCounts = new int[16];
+    this.rowBuffer = new int[16];
+  }
+
+  /**
+   * Count an event
+   * @param eventId
+   * @param activityCode
+   * @param attributeCodes codes of the non-empty attributes, read from offset to offset + count
+   * @param offset
+   * @param count
+   */
+  public void add(int eventId, int activityCode, int[] attributeCodes, int offset, int count) {
+    this.activityIndex(activityCode);
+    // Sort the attributes of the event by code, repeated attributes are counted once
+    if (count > this.rowBuffer.length) {
+      this.rowBuffer = new int[Math.max(count, this.rowBuffer.length * 2)];
+    }
+    System.arraycopy(attributeCodes, offset, this.rowBuffer, 0, count);
+    Arrays.sort(this.rowBuffer, 0, count);
+    for (int i = 0; i < count; i++) {
+      if (i > 0 && this.rowBuffer[i] == this.rowBuffer[i - 1]) {
+        continue;
+      }
+      this.relations.increment(activityCode, this.rowBuffer[i]);
+      this.addEventId(this.attributeIndex(this.rowBuffer[i]), eventId);
+    }
+  }
+
+  /**
+   * Add the statistics of events that follow all events counted so far
+   * @param other
+   * @param activityMapping maps the activity codes of the other statistics to the codes of these statistics
+   * @param eventIdOffset added to the event ids of the other statistics
+   */
+  public void merge(RelationStatistics other, int[] activityMapping, int eventIdOffset) {
+    for (int i = 0; i < other.activityCount; i++) {
+      this.activityIndex(activityMapping[other.activityCodes[i]]);
+    }
+    int[] attributeIndices = new int[other.attributeCount];
+    for (int i = 0; i < other.attributeCount; i++) {
+      attributeIndices[i] = this.attributeIndex(other.attributeCodes[i]);
+    }
+    this.relations.merge(other.relations, activityMapping);
+    for (int i = 0; i < other.attributeCount; i++) {
+      for (int j = 0; j < other.eventCounts[i]; j++) {
+        this.addEventId(attributeIndices[i], other.eventIds[i][j] + eventIdOffset);
+      }
+    }
+  }
+
+  private int activityIndex(int activityCode) {
+    if (activityCode >= this.activityIndices.length) {
+      int length = this.activityIndices.length;
+      this.activityIndices = Arrays.copyOf(this.activityIndices, Math.max(activityCode + 1, length * 2));
+      Arrays.fill(this.activityIndices, length, this.activityIndices.length, -1);
+    }
+    int index = this.activityIndices[activityCode];
+    if (index < 0) {
+      index = this.activityCount++;
+      if (index == this.activityCodes.length) {
+        this.activityCodes = Arrays.copyOf(this.activityCodes, index * 2);
+      }
+      this.activityCodes[index] = activityCode;
+      this.activityIndices[activityCode] = index;
+    }
+    return index;
+  }
+
+  private int attributeIndex(int attributeCode) {
+    if (attributeCode >= this.attributeIndices.length) {
+      int length = this.attributeIndices.length;
+      this.attributeIndices = Arrays.copyOf(this.attributeIndices, Math.max(attributeCode + 1, length * 2));
+      Arrays.fill(this.attributeIndices, length, this.attributeIndices.length, -1);
+    }
+    int index = this.attributeIndices[attributeCode];
+    if (index < 0) {
+      index = this.attributeCount++;
+      if (index == this.attributeCodes.length) {
+        this.attributeCodes = Arrays.copyOf(this.attributeCodes, index * 2);
+        this.eventIds = Arrays.copyOf(this.eventIds, index * 2);
+        this.eventCounts = Arrays.copyOf(this.eventCounts, index * 2);
+      }
+      this.attributeCodes[index] = attributeCode;
+      this.attributeIndices[attributeCode] = index;
+      this.eventIds[index] = new int[16];
+    }
+    return index;
+  }
+
+  private void addEventId(int attributeIndex, int eventId) {
+    if (this.eventCounts[attributeIndex] == this.eventIds[attributeIndex].length) {
+      this.eventIds[attributeIndex] = Arrays.copyOf(this.eventIds[attributeIndex], this.eventCounts[attributeIndex] * 2);
+    }
+    this.eventIds[attributeIndex][this.eventCounts[attributeIndex]++] = eventId;
+  }
+
+  public int getActivityCount() {
+    return activityCount;
+  }
+
+  public int getActivityCode(int activityIndex) {
+    return this.activityCodes[activityIndex];
+  }
+
+  // Index of the activity or -1 if it did not occur
+  public int getActivityIndex(int activityCode) {
+    return activityCode < this.activityIndices.length ? this.activityIndices[activityCode] : -1;
+  }
+
+  public int getAttributeCount() {
+    return attributeCount;
+  }
+
+  public int getAttributeCode(int attributeIndex) {
+    return this.attributeCodes[attributeIndex];
+  }
+
+  // Index of the attribute or -1 if it did not occur
+  public int getAttributeIndex(int attributeCode) {
+    return attributeCode < this.attributeIndices.length ? this.attributeIndices[attributeCode] : -1;
+  }
+
+  // Relation counts indexed by activity and attribute codes
+  public RelationMatrix getRelations() {
+    return relations;
+  }
+
+  // Ids of the events having the attribute in ascending order
+  public int[] getEventIds(int attributeIndex) {
+    return Arrays.copyOf(this.eventIds[attributeIndex], this.eventCounts[attributeIndex]);
+  }
+}
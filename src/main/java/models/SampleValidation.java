@@ -0,0 +1,50 @@
+package models;
+
+import java.util.List;
+
+// Comparison of the object classes detected on a sample with the object classes detected on the relations of all events
+public class SampleValidation {
+  private final int eventCount;
+  private final List<String> unassignedAttributes;
+  private final List<String> unconfirmedAttributes;
+  private final List<String> differingAttributes;
+  private final List<ObjectClass> objectClasses;
+
+  public SampleValidation(int eventCount, List<String> unassignedAttributes, List<String> unconfirmedAttributes,
+                          List<String> differingAttributes, List<ObjectClass> objectClasses) {
+    this.eventCount = eventCount;
+    this.unassignedAttributes = unassignedAttributes;
+    this.unconfirmedAttributes = unconfirmedAttributes;
+    this.differingAttributes = differingAttributes;
+    this.objectClasses = objectClasses;
+  }
+
+  public boolean isConfirmed() {
+    return this.unassignedAttributes.isEmpty() && this.unconfirmedAttributes.isEmpty() && this.differingAttributes.isEmpty();
+  }
+
+  // Number of validated events
+  public int getEventCount() {
+    return eventCount;
+  }
+
+  // Attributes of the log that are not part of any object class detected on the sample
+  public List<String> getUnassignedAttributes() {
+    return unassignedAttributes;
+  }
+
+  // Attributes related to activities in the log that they are not related to in the sample
+  public List<String> getUnconfirmedAttributes() {
+    return unconfirmedAttributes;
+  }
+
+  // Attributes whose object class detected on all events differs from the one detected on the sample
+  public List<String> getDifferingAttributes() {
+    return differingAttributes;
+  }
+
+  // Object classes detected on all events, without populated columns
+  public List<ObjectClass> getObjectClasses() {
+    return objectClasses;
+  }
+}
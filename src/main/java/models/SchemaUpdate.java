@@ -0,0 +1,44 @@
+package models;
+
+import java.util.List;
+
+// Result of an incremental schema detection, object classes that did not change are retained as they were
+public class SchemaUpdate {
+  private final List<ObjectClass> objectClasses;
+  private final List<ObjectClass> addedObjectClasses;
+  private final List<ObjectClass> removedObjectClasses;
+  private final List<ObjectClass> renamedObjectClasses;
+
+  public SchemaUpdate(List<ObjectClass> objectClasses, List<ObjectClass> addedObjectClasses, List<ObjectClass> removedObjectClasses,
+                      List<ObjectClass> renamedObjectClasses) {
+    this.objectClasses = objectClasses;
+    this.addedObjectClasses = addedObjectClasses;
+    this.removedObjectClasses = removedObjectClasses;
+    this.renamedObjectClasses = renamedObjectClasses;
+  }
+
+  public boolean hasChanges() {
+    return !this.addedObjectClasses.isEmpty() || !this.removedObjectClasses.isEmpty();
+  }
+
+  // All object classes after the update
+  public List<ObjectClass> getObjectClasses() {
+    return objectClasses;
+  }
+
+  // Object classes with attributes that no previous object class had
+  public List<ObjectClass> getAddedObjectClasses() {
+    return addedObjectClasses;
+  }
+
+  // Previous object classes whose attributes no object class has anymore
+  public List<ObjectClass> getRemovedObjectClasses() {
+    return removedObjectClasses;
+  }
+
+  // Object classes with the attributes and columns of a previous object class that changed its position and name,
+  // renames alone are no changes of the schema
+  public List<ObjectClass> getRenamedObjectClasses() {
+    return renamedObjectClasses;
+  }
+}
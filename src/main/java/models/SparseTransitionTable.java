@@ -0,0 +1,84 @@
+package models;
+
+import java.util.Arrays;
+
+// Transition table keeping only the occurring transitions. Counts are kept in an open addressing map per row, the
+// probabilities in compressed rows of ascending target entries.
+public class SparseTransitionTable extends TransitionTable {
+
+  private final IntIntMap[] counts;
+  // Probabilities of row i are at rowStarts[i] until rowStarts[i + 1]
+  private int[] rowStarts;
+  private int[] targets;
+  private double[] probabilities;
+
+  public SparseTransitionTable(int size) {
+    super(size);
+    this.counts = new IntIntMap[size];
+    this.rowStarts = new int[size + 1];
+    this.targets = new int[0];
+    this.probabilities = new double[0];
+  }
+
+  @Override
+  public void clear() {
+    for (IntIntMap row : this.counts) {
+      if (row != null) {
+        row.clear();
+      }
+    }
+    Arrays.fill(this.rowStarts, 0);
+  }
+
+  @Override
+  public void increment(int from, int to) {
+    if (from < 0 || from >= this.size || to < 0 || to >= this.size) {
+      throw new ArrayIndexOutOfBoundsException("Transition " + from + " -> " + to + " outside of " + this.size + " entries");
+    }
+    if (this.counts[from] == null) {
+      this.counts[from] = new IntIntMap(4);
+    }
+    this.counts[from].add(to, 1);
+  }
+
+  @Override
+  public void normalize() {
+    int transitionCount = 0;
+    for (IntIntMap row : this.counts) {
+      if (row != null) {
+        transitionCount += row.size();
+      }
+    }
+    this.targets = new int[transitionCount];
+    this.probabilities = new double[transitionCount];
+    int position = 0;
+    for (int i = 0; i < this.size; i++) {
+      this.rowStarts[i] = position;
+      IntIntMap row = this.counts[i];
+      if (row == null || row.size() == 0) {
+        continue;
+      }
+      int[] rowTargets = row.keys();
+      Arrays.sort(rowTargets);
+      long rowSum = 0;
+      for (int target : rowTargets) {
+        rowSum += row.get(target, 0);
+      }
+      for (int target : rowTargets) {
+        this.targets[position] = target;
+        this.probabilities[position] = row.get(target, 0) / (double) rowSum;
+        position++;
+      }
+    }
+    this.rowStarts[this.size] = position;
+  }
+
+  @Override
+  public double get(int from, int to) {
+    if (to < 0 || to >= this.size) {
+      throw new ArrayIndexOutOfBoundsException("Transition " + from + " -> " + to + " outside of " + this.size + " entries");
+    }
+    int position = Arrays.binarySearch(this.targets, this.rowStarts[from], this.rowStarts[from + 1], to);
+    return position >= 0 ? this.probabilities[position] : 0.0;
+  }
+}
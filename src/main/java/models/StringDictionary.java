@@ -0,0 +1,53 @@
+package models;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Thread-safe bidirectional mapping between strings and dense integer codes (0, 1, 2, ...)
+public class StringDictionary {
+
+  public static final int UNKNOWN = -1;
+
+  private final ConcurrentHashMap<String, Integer> codes;
+  private volatile String[] values;
+  private volatile int size;
+
+  public StringDictionary() {
+    this.codes = new ConcurrentHashMap<>();
+    this.values = new String[64];
+    this.size = 0;
+  }
+
+  public int encode(String value) {
+    Integer code = this.codes.get(value);
+    if (code != null) {
+      return code;
+    }
+    synchronized (this) {
+      code = this.codes.get(value);
+      if (code == null) {
+        code = this.size;
+        if (code == this.values.length) {
+          this.values = Arrays.copyOf(this.values, this.values.length * 2);
+        }
+        this.values[code] = value;
+        this.size = code + 1;
+        this.codes.put(value, code);
+      }
+      return code;
+    }
+  }
+
+  public int lookup(String value) {
+    Integer code = this.codes.get(value);
+    return code == null ? UNKNOWN : code;
+  }
+
+  public String decode(int code) {
+    return this.values[code];
+  }
+
+  public int size() {
+    return this.size;
+  }
+}
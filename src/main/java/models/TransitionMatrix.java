@@ -6,14 +6,33 @@ import java.util.stream.Collectors;
 
 public abstract class TransitionMatrix<Source extends SourceSequence<Element>, Element extends EstimationElement> extends Thread {
 
-  private double[][] matrix;
+  // Number of elements assigned between checks of the time limit
+  private static final int TIME_CHECK_INTERVAL = 1024;
+
+  // Transition counts and the probabilities normalized from them, reused across iterations
+  private TransitionTable table;
   private List<Source> sources;
   private List<Element> elements;
   public Map<String, Integer> transitionEntryMap;
+  // Matrix entry per element id, so lookups do not go through the names
+  private IntIntMap elementEntries;
   private final String identifier;
   protected final int startActivity;
   protected final int endActivity;
   protected final List<String> activities;
+  // Maximum number of iterations and time in milliseconds after the initialization, 0 if unlimited
+  private int iterationLimit;
+  private long timeLimit;
+  private long startTime;
+  // System.nanoTime() at which the estimation expires independent of its own start, if hasDeadline is set
+  private long deadline;
+  private boolean hasDeadline;
+  // Whether an iteration may be given up because the sources of the previous one can be kept
+  private boolean interruptible;
+  private boolean expired;
+  private EstimationStop estimationStop;
+  // Time without elements after which a source is no longer a candidate for further elements, 0 if unlimited
+  private long inactivityTimeout;
 
   public TransitionMatrix(List<Element> elements, String identifier) {
     this.identifier = identifier;
@@ -28,9 +47,20 @@ public abstract class TransitionMatrix<Source extends SourceSequence<Element>, E
       activities.add(entries.get(i));
     }
     this.endActivity = this.transitionEntryMap.size() + 1;
+    this.encodeElements();
     this.clearTransitionMatrix();
   }
 
+  private void encodeElements() {
+    this.elementEntries = new IntIntMap(this.elements.size());
+    for (Element element : this.elements) {
+      Integer entry = this.transitionEntryMap.get(element.getName());
+      if (entry != null) {
+        this.elementEntries.put(element.getId(), entry);
+      }
+    }
+  }
+
   protected abstract Source getSuitableSource(List<Source> activeSources, Element element);
 
   protected abstract Source createSource();
@@ -42,40 +72,171 @@ public abstract class TransitionMatrix<Source extends SourceSequence<Element>, E
 
   public void estimate() {
     int iteration = 0;
-    List<List<Source>> previousSources = new ArrayList<>();
+    this.startTime = System.nanoTime();
+    this.interruptible = false;
+    this.expired = false;
+    this.estimationStop = EstimationStop.CONVERGED;
+    // Fingerprints of the sources of all iterations, only the sources of the previous iteration are kept
+    Set<Fingerprint> previousFingerprints = new HashSet<>();
+    List<Source> previousSources = null;
+    Fingerprint previousFingerprint = null;
     System.out.println("(" + this.getIdentifier() + ") - Initializing source sequence");
     this.estimateSequences();
     System.out.println("(" + this.getIdentifier() + ") - Finished initialization ");
-    while (!this.containsSequences(previousSources, this.sources))  {
+    this.interruptible = true;
+    Fingerprint fingerprint = this.fingerprint(this.sources);
+    while (!this.isRepeated(fingerprint, previousFingerprints, previousFingerprint, previousSources))  {
+      if (this.iterationLimit > 0 && iteration >= this.iterationLimit) {
+        this.estimationStop = EstimationStop.ITERATION_LIMIT;
+        break;
+      }
+      if (this.isExpired()) {
+        this.estimationStop = EstimationStop.TIME_LIMIT;
+        break;
+      }
       iteration++;
-      previousSources.add(new ArrayList<>(this.sources));
+      previousFingerprints.add(fingerprint);
+      previousFingerprint = fingerprint;
+      previousSources = this.sources;
       System.out.println("(" + this.getIdentifier() + ") - Starting estimation iteration " + iteration);
       this.updateMatrix();
       this.estimateSequences();
+      if (this.expired) {
+        // Keep the sources of the last completed iteration
+        System.out.println("(" + this.getIdentifier() + ") - Cancelled estimation iteration " + iteration);
+        this.sources = previousSources;
+        this.estimationStop = EstimationStop.TIME_LIMIT;
+        iteration--;
+        break;
+      }
+      fingerprint = this.fingerprint(this.sources);
       System.out.println("(" + this.getIdentifier() + ") - Finished estimation iteration " + iteration);
     }
     this.updateMatrix();
-    System.out.println("(" + this.getIdentifier() + ") - Finished source sequence estimation after " + iteration + " iteration(s)");
+    if (this.estimationStop == EstimationStop.CONVERGED) {
+      System.out.println("(" + this.getIdentifier() + ") - Finished source sequence estimation after " + iteration + " iteration(s)");
+    } else {
+      System.out.println("(" + this.getIdentifier() + ") - Stopped source sequence estimation after " + iteration + " iteration(s) at the "
+          + (this.estimationStop == EstimationStop.ITERATION_LIMIT ? "iteration" : "time") + " limit");
+    }
+    this.postProcessing();
+  }
+
+  /**
+   * Take the sources estimated separately for independent partitions of the elements, in the order of their first
+   * elements, and determine the transition matrix of all sources
+   * @param partitions estimated matrices of the partitions
+   */
+  public void combine(List<? extends TransitionMatrix<Source, Element>> partitions) {
+    this.sources = new ArrayList<>();
+    this.estimationStop = EstimationStop.CONVERGED;
+    for (TransitionMatrix<Source, Element> partition : partitions) {
+      this.sources.addAll(partition.getSources());
+      if (partition.getEstimationStop() != EstimationStop.CONVERGED) {
+        this.estimationStop = partition.getEstimationStop();
+      }
+    }
+    this.sources.sort(Comparator.comparingInt(source -> source.getFirstElement().getId()));
+    this.updateMatrix();
+    System.out.println("(" + this.getIdentifier() + ") - Combined the sources of " + partitions.size() + " partitions");
     this.postProcessing();
   }
 
+  private boolean isExpired() {
+    long now = System.nanoTime();
+    return (this.timeLimit > 0 && now - this.startTime > this.timeLimit * 1000000)
+        || (this.hasDeadline && now - this.deadline > 0);
+  }
+
+  // The sources of an earlier iteration repeat if their fingerprint does, sources equal to the previous iteration
+  // are confirmed by comparing them
+  private boolean isRepeated(Fingerprint fingerprint, Set<Fingerprint> previousFingerprints, Fingerprint previousFingerprint, List<Source> previousSources) {
+    if (!previousFingerprints.contains(fingerprint)) {
+      return false;
+    }
+    return !fingerprint.equals(previousFingerprint) || this.equalSequences(previousSources, this.sources);
+  }
+
+  // Fingerprint of the element ids of all sources, including where each source starts
+  private Fingerprint fingerprint(List<Source> sources) {
+    long high = 0;
+    long low = 0;
+    for (Source source : sources) {
+      high = Fingerprint.mixHigh(high ^ source.getElements().size());
+      low = Fingerprint.mixLow(low + source.getElements().size());
+      for (Element element : source.getElements()) {
+        high = Fingerprint.mixHigh(high ^ (element.getId() + 1L));
+        low = Fingerprint.mixLow(low + (element.getId() + 1L));
+      }
+    }
+    return new Fingerprint(high, low);
+  }
+
   protected void estimateSequences() {
     this.sources = new ArrayList<>();
+    // Without inactivity timeout all sources stay candidates for the following elements
+    List<Source> activeSources = this.inactivityTimeout > 0 ? new ArrayList<>() : this.sources;
+    Deque<SourceActivity<Source>> activities = new ArrayDeque<>();
+    Set<Source> closedSources = Collections.newSetFromMap(new IdentityHashMap<>());
+    int assignedElements = 0;
     for (Element element : this.elements) {
-      Source suitableSource = this.getSuitableSource(this.sources, element);
+      if (this.interruptible && ++assignedElements % TIME_CHECK_INTERVAL == 0 && this.isExpired()) {
+        this.expired = true;
+        return;
+      }
+      if (this.inactivityTimeout > 0) {
+        this.closeInactiveSources(element.getTimestamp(), activities, activeSources, closedSources);
+      }
+      Source suitableSource = this.getSuitableSource(activeSources, element);
       if (suitableSource == null) {
         suitableSource = this.createSource();
         this.sources.add(suitableSource);
+        if (activeSources != this.sources) {
+          activeSources.add(suitableSource);
+        }
       }
       suitableSource.add(element);
+      this.sourceExtended(suitableSource, element);
+      if (this.inactivityTimeout > 0) {
+        activities.add(new SourceActivity<>(suitableSource, element.getTimestamp()));
+      }
+    }
+  }
+
+  // Close the sources whose last element is more than the inactivity timeout before the given time. The activities
+  // are in the order of the elements, a source is only closed at its latest activity.
+  private void closeInactiveSources(long timestamp, Deque<SourceActivity<Source>> activities, List<Source> activeSources, Set<Source> closedSources) {
+    Set<Source> newlyClosedSources = null;
+    while (!activities.isEmpty() && timestamp - activities.peek().timestamp > this.inactivityTimeout) {
+      Source source = activities.poll().source;
+      if (timestamp - source.getLastElement().getTimestamp() > this.inactivityTimeout && closedSources.add(source)) {
+        if (newlyClosedSources == null) {
+          newlyClosedSources = Collections.newSetFromMap(new IdentityHashMap<>());
+        }
+        newlyClosedSources.add(source);
+        this.sourceClosed(source);
+      }
+    }
+    if (newlyClosedSources != null) {
+      activeSources.removeIf(newlyClosedSources::contains);
     }
   }
 
+  // Called after an element was added to a source, e.g. to keep an index of the sources up to date
+  protected void sourceExtended(Source source, Element element) {
+
+  }
+
+  // Called when a source is no longer a candidate for further elements because of the inactivity timeout
+  protected void sourceClosed(Source source) {
+
+  }
+
   protected void updateMatrix() {
     this.clearTransitionMatrix();
     for (Source source : this.sources) {
-      incrementTransitionProbability(this.startActivity, this.transitionEntryMap.get(source.getFirstElement().getName()));
-      incrementTransitionProbability(this.transitionEntryMap.get(source.getLastElement().getName()), this.endActivity);
+      incrementTransitionProbability(this.startActivity, this.getEntry(source.getFirstElement()));
+      incrementTransitionProbability(this.getEntry(source.getLastElement()), this.endActivity);
       for (int i = 0; i < source.getElements().size() - 1; i++) {
         incrementTransitionProbability(source.getElements().get(i), source.getElements().get(i + 1));
       }
@@ -90,6 +251,12 @@ public abstract class TransitionMatrix<Source extends SourceSequence<Element>, E
 
   public void setTransitionEntryMap(Map<String, Integer> transitionEntryMap) {
     this.transitionEntryMap = transitionEntryMap;
+    this.encodeElements();
+  }
+
+  // Matrix entry of an element of this matrix
+  public int getEntry(Element element) {
+    return this.elementEntries.get(element.getId(), -1);
   }
 
   public int getStartActivity() {
@@ -101,77 +268,101 @@ public abstract class TransitionMatrix<Source extends SourceSequence<Element>, E
   }
 
   public double getTransitionProbability(int from, int to) {
-    return this.matrix[from][to];
+    return this.table.get(from, to);
   }
 
   public double getTransitionProbability(Element from, Element to) {
-    return this.getTransitionProbability(this.transitionEntryMap.get(from.getName()), this.transitionEntryMap.get(to.getName()));
+    return this.table.get(this.getEntry(from), this.getEntry(to));
   }
 
   public void incrementTransitionProbability(int from, int to) {
-    this.matrix[from][to] += 1;
+    this.table.increment(from, to);
   }
 
   public void incrementTransitionProbability(Element from, Element to) {
-    this.incrementTransitionProbability(this.transitionEntryMap.get(from.getName()), this.transitionEntryMap.get(to.getName()));
+    this.table.increment(this.getEntry(from), this.getEntry(to));
   }
 
   public void clearTransitionMatrix() {
-    this.matrix = new double[this.transitionEntryMap.size() + 2][this.transitionEntryMap.size() + 2];
+    int size = this.transitionEntryMap.size() + 2;
+    if (this.table == null || this.table.size() != size) {
+      this.table = TransitionTable.create(size);
+    } else {
+      this.table.clear();
+    }
   }
 
   public void normalizeTransitionMatrix() {
-    for (int i = 0; i < this.matrix.length; i++) {
-      double[] row = this.matrix[i];
-      double rowSum = Arrays.stream(row).sum();
-      this.matrix[i] = Arrays.stream(row).map(entry -> {
-        if (entry > 0) {
-          return entry / rowSum;
+    this.table.normalize();
+  }
+
+  public TransitionTable getTransitionTable() {
+    return table;
+  }
+
+  private boolean equalSequences(List<Source> sequence, List<Source> currentSequence) {
+    // Check for number of sources
+    if (sequence.size() != currentSequence.size()) {
+      return false;
+    }
+
+    // Check for same sources
+    for (int i = 0; i < sequence.size(); i++) {
+      Source originalSource = sequence.get(i);
+      Source currentSource = currentSequence.get(i);
+
+      if (originalSource.getElements().size() != currentSource.getElements().size()) {
+        return false;
+      }
+
+      for (int j = 0; j < originalSource.getElements().size(); j++) {
+        Element originalElement = originalSource.getElements().get(j);
+        Element currentElement = currentSource.getElements().get(j);
+        if (originalElement.getId() != currentElement.getId()) {
+          return false;
         }
-        return 0.0;
-      }).toArray();
+      }
     }
+    return true;
   }
 
-  private boolean containsSequences(List<List<Source>> previousSequences, List<Source> currentSequence) {
-    for (List<Source> sequence : previousSequences) {
+  public int getIterationLimit() {
+    return iterationLimit;
+  }
 
-      // Check for number of sources
-      if (sequence.size() != currentSequence.size()) {
-        continue;
-      }
+  // Maximum number of estimation iterations after the initialization, 0 if unlimited
+  public void setIterationLimit(int iterationLimit) {
+    this.iterationLimit = iterationLimit;
+  }
 
-      // Check for same sources
-      boolean sourcesAreEqual = true;
-      for (int i = 0; i < sequence.size(); i++) {
-        Source originalSource = sequence.get(i);
-        Source currentSource = currentSequence.get(i);
+  public long getTimeLimit() {
+    return timeLimit;
+  }
 
-        if (originalSource.getElements().size() != currentSource.getElements().size()) {
-          sourcesAreEqual = false;
-          break;
-        }
+  // Time in milliseconds after which the estimation keeps the sources of the last completed iteration, 0 if unlimited.
+  // The initialization is always completed.
+  public void setTimeLimit(long timeLimit) {
+    this.timeLimit = timeLimit;
+  }
 
-        for (int j = 0; j < originalSource.getElements().size(); j++) {
-          Element originalElement = originalSource.getElements().get(j);
-          Element currentElement = currentSource.getElements().get(j);
-          if (originalElement.getId() != currentElement.getId()) {
-            sourcesAreEqual = false;
-            break;
-          }
-        }
+  // Point in time of System.nanoTime() after which the estimation keeps the sources of the last completed iteration,
+  // e.g. the end of the time limit of an object class that is estimated in partitions
+  public void setDeadline(long deadline) {
+    this.deadline = deadline;
+    this.hasDeadline = true;
+  }
 
-        if (!sourcesAreEqual) {
-          break;
-        }
-      }
+  public long getInactivityTimeout() {
+    return inactivityTimeout;
+  }
 
-      if (!sourcesAreEqual) {
-        continue;
-      }
-      return true;
-    }
-    return false;
+  // Time in the unit of the element timestamps, sources without elements for longer are closed, 0 if unlimited
+  public void setInactivityTimeout(long inactivityTimeout) {
+    this.inactivityTimeout = inactivityTimeout;
+  }
+
+  public EstimationStop getEstimationStop() {
+    return estimationStop;
   }
 
   public List<Source> getSources() {
@@ -188,6 +379,7 @@ public abstract class TransitionMatrix<Source extends SourceSequence<Element>, E
 
   public void setElements(List<Element> elements) {
     this.elements = elements;
+    this.encodeElements();
   }
 
   public String getProcess() {
@@ -199,10 +391,10 @@ public abstract class TransitionMatrix<Source extends SourceSequence<Element>, E
     }
     sb.append("x: END\n\n");
     sb.append("    ");
-    for (int topIndex = 0; topIndex < this.matrix.length; topIndex++) {
+    for (int topIndex = 0; topIndex < this.table.size(); topIndex++) {
       if (topIndex == 0) {
         sb.append("  o  ");
-      } else if (topIndex == this.matrix.length - 1) {
+      } else if (topIndex == this.table.size() - 1) {
         sb.append("  x  ");
       } else {
         String topIndexValue = "  " + topIndex;
@@ -216,17 +408,17 @@ public abstract class TransitionMatrix<Source extends SourceSequence<Element>, E
       }
     }
     sb.append("\n    ");
-    for (int topIndex = 0; topIndex < this.matrix.length; topIndex++) {
+    for (int topIndex = 0; topIndex < this.table.size(); topIndex++) {
       sb.append("-----");
     }
     sb.append("\n");
 
     DecimalFormat decimalFormat = new DecimalFormat("#.##");
 
-    for (int from = 0; from < this.matrix.length; from++) {
+    for (int from = 0; from < this.table.size(); from++) {
       if (from == 0) {
         sb.append("o  |");
-      } else if (from == this.matrix.length - 1) {
+      } else if (from == this.table.size() - 1) {
         sb.append("x  |");
       } else {
         if (String.valueOf(from).length() == 1) {
@@ -235,11 +427,11 @@ public abstract class TransitionMatrix<Source extends SourceSequence<Element>, E
           sb.append(from + " |");
         }
       }
-      for (int to = 0; to < this.matrix[from].length; to++) {
-        if (this.matrix[from][to] == 0) {
+      for (int to = 0; to < this.table.size(); to++) {
+        if (this.table.get(from, to) == 0) {
           sb.append("  -  ");
         } else {
-          String value = decimalFormat.format(this.matrix[from][to]);
+          String value = decimalFormat.format(this.table.get(from, to));
           if (value.length() == 1) {
             value += ".00";
           }
@@ -265,4 +457,53 @@ public abstract class TransitionMatrix<Source extends SourceSequence<Element>, E
   protected void postProcessing() {
 
   }
+
+  // 128 bit fingerprint of two independently mixed 64 bit hashes
+  private static class Fingerprint {
+    private final long high;
+    private final long low;
+
+    private Fingerprint(long high, long low) {
+      this.high = high;
+      this.low = low;
+    }
+
+    // SplitMix64 finalizer
+    private static long mixHigh(long z) {
+      z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+      z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+      return z ^ (z >>> 31);
+    }
+
+    // MurmurHash3 finalizer
+    private static long mixLow(long z) {
+      z = (z ^ (z >>> 33)) * 0xFF51AFD7ED558CCDL;
+      z = (z ^ (z >>> 33)) * 0xC4CEB9FE1A85EC53L;
+      return z ^ (z >>> 33);
+    }
+
+    @Override
+    public boolean equals(Object other) {
+      if (!(other instanceof Fingerprint)) {
+        return false;
+      }
+      return this.high == ((Fingerprint) other).high && this.low == ((Fingerprint) other).low;
+    }
+
+    @Override
+    public int hashCode() {
+      return Long.hashCode(this.high);
+    }
+  }
+
+  // Element of a source at the given time
+  private static class SourceActivity<Source> {
+    private final Source source;
+    private final long timestamp;
+
+    private SourceActivity(Source source, long timestamp) {
+      this.source = source;
+      this.timestamp = timestamp;
+    }
+  }
 }
@@ -0,0 +1,33 @@
+package models;
+
+// Transition counts between the entries of a transition matrix and the probabilities normalized from them per row.
+// Probabilities reflect the counts of the last normalization.
+public abstract class TransitionTable {
+
+  // Tables with more entries are kept sparse, as most transitions between many entries never occur
+  public static final int SPARSE_THRESHOLD = 1024;
+
+  protected final int size;
+
+  protected TransitionTable(int size) {
+    this.size = size;
+  }
+
+  public static TransitionTable create(int size) {
+    return size > SPARSE_THRESHOLD ? new SparseTransitionTable(size) : new DenseTransitionTable(size);
+  }
+
+  public int size() {
+    return size;
+  }
+
+  // Reset all counts and probabilities to 0, keeping the allocated memory where possible
+  public abstract void clear();
+
+  public abstract void increment(int from, int to);
+
+  // Determine the probabilities as counts divided by the sum of their row
+  public abstract void normalize();
+
+  public abstract double get(int from, int to);
+}
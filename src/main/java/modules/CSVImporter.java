@@ -1,17 +1,29 @@
 package modules;
 
 import models.Event;
+import models.EventStore;
+import models.RelationStatistics;
 
 import java.io.BufferedReader;
 import java.io.FileReader;
 import java.io.IOException;
-import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
 
 public class CSVImporter {
   public static List<Event> load(String filePath, String columnSeparator, boolean debuggingMode) throws IOException {
+    return load(filePath, columnSeparator, debuggingMode, null);
+  }
+
+  /**
+   * Import the event log and collect the activity-attribute relations of the imported events
+   * @param filePath
+   * @param columnSeparator
+   * @param debuggingMode
+   * @param statistics filled with the relations of all events, ignored if null
+   * @return
+   * @throws IOException
+   */
+  public static List<Event> load(String filePath, String columnSeparator, boolean debuggingMode, RelationStatistics statistics) throws IOException {
     System.out.print("Importing CSV-file... ");
 
     int caseIdColumnIndex = -1;
@@ -26,28 +38,58 @@ public class CSVImporter {
       firstOptionalAttributeColumnIndex = 3;
     }
 
-    List<Event> events = new ArrayList<>();
-    BufferedReader reader = new BufferedReader(new FileReader(filePath));
-    String row;
-    row = reader.readLine();
-    String[] columns = row.split(columnSeparator, -1);
-    int eventId = 0;
-
-    while ((row = reader.readLine()) != null) {
-      String[] data = row.split(columnSeparator, -1);
-      Map<String, String> attributes = new HashMap();
-      String caseId = debuggingMode ? data[caseIdColumnIndex] : "";
-      Long timestamp = Long.parseLong(data[timestampColumnIndex]);
-      String activity = data[activityColumnIndex];
-      for (int i = firstOptionalAttributeColumnIndex; i < data.length; i++) {
-        if (!data[i].equals("")) {
-          attributes.put(columns[i], data[i]);
+    EventStore store = new EventStore();
+    try (BufferedReader reader = new BufferedReader(new FileReader(filePath))) {
+      String row;
+      row = reader.readLine();
+      String[] columns = row.split(columnSeparator, -1);
+      int[] columnCodes = new int[columns.length];
+      for (int i = firstOptionalAttributeColumnIndex; i < columns.length; i++) {
+        columnCodes[i] = EventStore.ATTRIBUTES.encode(columns[i]);
+      }
+      int[] attributeCodes = new int[columns.length];
+      int[] valueCodes = new int[columns.length];
+      int eventId = 0;
+
+      while ((row = reader.readLine()) != null) {
+        String[] data = row.split(columnSeparator, -1);
+        int caseId = debuggingMode ? EventStore.VALUES.encode(data[caseIdColumnIndex]) : EventStore.EMPTY_VALUE;
+        long timestamp = Long.parseLong(data[timestampColumnIndex]);
+        int activity = EventStore.ACTIVITIES.encode(data[activityColumnIndex]);
+        int attributeCount = 0;
+        for (int i = firstOptionalAttributeColumnIndex; i < data.length; i++) {
+          if (!data[i].equals("")) {
+            attributeCodes[attributeCount] = columnCodes[i];
+            valueCodes[attributeCount] = EventStore.VALUES.encode(data[i]);
+            attributeCount++;
+          }
         }
+        store.append(eventId, caseId, timestamp, activity, attributeCodes, valueCodes, 0, attributeCount);
+        if (statistics != null) {
+          statistics.add(eventId, activity, attributeCodes, 0, attributeCount);
+        }
+        eventId++;
       }
-      events.add(new Event(eventId, caseId, timestamp, activity, attributes));
-      eventId++;
     }
+    store.trimToSize();
+    List<Event> events = store.getEvents();
+
+    System.out.println("done.\nDetected " + events.size() + " events\n");
+    return events;
+  }
+
+  // Reads the file via a memory mapping, the column separator is matched literally instead of as a regular expression
+  public static List<Event> loadMapped(String filePath, String columnSeparator, boolean debuggingMode) throws IOException {
+    return loadMapped(filePath, columnSeparator, debuggingMode, 1);
+  }
+
+  public static List<Event> loadMapped(String filePath, String columnSeparator, boolean debuggingMode, int threads) throws IOException {
+    return loadMapped(filePath, columnSeparator, debuggingMode, threads, null);
+  }
 
+  public static List<Event> loadMapped(String filePath, String columnSeparator, boolean debuggingMode, int threads, RelationStatistics statistics) throws IOException {
+    System.out.print("Importing CSV-file (memory-mapped, " + threads + " thread" + (threads > 1 ? "s" : "") + ")... ");
+    List<Event> events = new MappedCSVReader(filePath, columnSeparator, debuggingMode).read(threads, statistics);
     System.out.println("done.\nDetected " + events.size() + " events\n");
     return events;
   }
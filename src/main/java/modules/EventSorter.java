@@ -0,0 +1,342 @@
+package modules;
+
+import models.Event;
+import models.EventStore;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.regex.Pattern;
+
+// Orders event logs by timestamp, as the lifecycle and trace estimation process events in list order. Logs that fit
+// into memory are sorted on the columns of their event store, larger logs are sorted on the CSV-file before the
+// import using sorted runs that are spilled to temporary files and merged afterwards. Both sorts are stable, events
+// with equal timestamps keep their order of the CSV-file. Event ids are reassigned in the sorted order.
+public class EventSorter {
+
+  // Approximate heap usage of an imported event store (including the copy made while sorting) per byte of CSV-file
+  private static final int MEMORY_PER_INPUT_BYTE = 3;
+  // Approximate heap usage of a buffered line in addition to its characters
+  private static final int LINE_OVERHEAD = 64;
+  private static final int STREAM_BUFFER_SIZE = 1024 * 1024;
+
+  public static boolean isSorted(List<Event> events) {
+    for (int i = 1; i < events.size(); i++) {
+      if (events.get(i).getTimestamp() < events.get(i - 1).getTimestamp()) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  // Sort the events if they are not ordered by timestamp
+  public static List<Event> ensureSorted(List<Event> events) {
+    if (isSorted(events)) {
+      return events;
+    }
+    System.out.print("Input is not ordered by timestamp, sorting events... ");
+    sortByTimestamp(events);
+    System.out.println("done.\n");
+    return events;
+  }
+
+  /**
+   * Sort the events of an event store in place
+   * @param events all events of a single event store in store order
+   */
+  public static void sortByTimestamp(List<Event> events) {
+    if (events.isEmpty()) {
+      return;
+    }
+    EventStore store = events.get(0).getStore();
+    if (store.size() != events.size()) {
+      throw new IllegalArgumentException("The events have to form a complete event store");
+    }
+    store.reorder(sortedOrder(store.getTimestampColumn(), store.size()));
+    for (int i = 0; i < store.size(); i++) {
+      store.setId(i, i);
+    }
+  }
+
+  /**
+   * Stable order of the first size timestamps
+   * @param timestamps
+   * @param size
+   * @return indices of the timestamps in ascending order
+   */
+  static int[] sortedOrder(long[] timestamps, int size) {
+    long min = Long.MAX_VALUE;
+    long max = Long.MIN_VALUE;
+    for (int i = 0; i < size; i++) {
+      min = Math.min(min, timestamps[i]);
+      max = Math.max(max, timestamps[i]);
+    }
+    int indexBits = 32 - Integer.numberOfLeadingZeros(Math.max(size - 1, 1));
+    long range = max - min;
+
+    int[] order = new int[size];
+    if (size > 0 && range >= 0 && (range >>> (63 - indexBits)) == 0) {
+      // Pack the relative timestamp and the index into a single key, the index breaks ties and keeps the sort stable
+      long[] keys = new long[size];
+      for (int i = 0; i < size; i++) {
+        keys[i] = ((timestamps[i] - min) << indexBits) | i;
+      }
+      Arrays.parallelSort(keys);
+      long indexMask = (1L << indexBits) - 1;
+      for (int i = 0; i < size; i++) {
+        order[i] = (int) (keys[i] & indexMask);
+      }
+    } else {
+      // Timestamps spanning too large a range for packed keys are sorted by a merge sort on the indices
+      for (int i = 0; i < size; i++) {
+        order[i] = i;
+      }
+      mergeSort(order, new int[size], timestamps);
+    }
+    return order;
+  }
+
+  private static void mergeSort(int[] order, int[] buffer, long[] timestamps) {
+    int[] source = order;
+    int[] target = buffer;
+    for (int width = 1; width < order.length; width *= 2) {
+      for (int start = 0; start < order.length; start += 2 * width) {
+        int middle = Math.min(start + width, order.length);
+        int end = Math.min(start + 2 * width, order.length);
+        int left = start;
+        int right = middle;
+        for (int i = start; i < end; i++) {
+          if (left < middle && (right >= end || timestamps[source[left]] <= timestamps[source[right]])) {
+            target[i] = source[left++];
+          } else {
+            target[i] = source[right++];
+          }
+        }
+      }
+      int[] swap = source;
+      source = target;
+      target = swap;
+    }
+    if (source != order) {
+      System.arraycopy(source, 0, order, 0, order.length);
+    }
+  }
+
+  /**
+   * Whether the event store of the CSV-file is expected to fit into the given memory
+   * @param filePath
+   * @param memoryBudget in bytes
+   * @return
+   */
+  public static boolean fitsInMemory(String filePath, long memoryBudget) {
+    return new File(filePath).length() <= memoryBudget / MEMORY_PER_INPUT_BYTE;
+  }
+
+  // Memory that is considered available for sorting if not specified otherwise
+  public static long defaultMemoryBudget() {
+    return Runtime.getRuntime().maxMemory() / 2;
+  }
+
+  /**
+   * Check the order of the CSV-file without importing it
+   * @param filePath
+   * @param columnSeparator
+   * @param debuggingMode
+   * @param literalSeparator whether the separator is matched literally or as regular expression
+   * @return
+   * @throws IOException
+   */
+  public static boolean isSorted(String filePath, String columnSeparator, boolean debuggingMode, boolean literalSeparator) throws IOException {
+    TimestampParser parser = new TimestampParser(columnSeparator, debuggingMode, literalSeparator);
+    try (BufferedReader reader = openReader(filePath)) {
+      reader.readLine();
+      long previous = Long.MIN_VALUE;
+      String line;
+      while ((line = reader.readLine()) != null) {
+        if (line.isEmpty()) {
+          continue;
+        }
+        long timestamp = parser.parse(line);
+        if (timestamp < previous) {
+          return false;
+        }
+        previous = timestamp;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Sort the rows of the CSV-file by timestamp into a temporary CSV-file. Rows are collected into sorted runs of at
+   * most the given memory size, which are spilled to temporary files and merged afterwards.
+   * @param filePath
+   * @param columnSeparator
+   * @param debuggingMode
+   * @param literalSeparator whether the separator is matched literally or as regular expression
+   * @param memoryBudget memory used for buffering rows in bytes
+   * @return sorted CSV-file, deleted when the program terminates
+   * @throws IOException
+   */
+  public static File sortFile(String filePath, String columnSeparator, boolean debuggingMode, boolean literalSeparator, long memoryBudget) throws IOException {
+    System.out.print("Input is not ordered by timestamp, sorting CSV-file externally... ");
+    TimestampParser parser = new TimestampParser(columnSeparator, debuggingMode, literalSeparator);
+    List<File> runs = new ArrayList<>();
+    String header;
+    try (BufferedReader reader = openReader(filePath)) {
+      header = reader.readLine();
+      if (header == null) {
+        throw new IOException("The CSV-file is empty");
+      }
+      List<String> lines = new ArrayList<>();
+      long[] timestamps = new long[1024];
+      long bufferedBytes = 0;
+      String line;
+      while ((line = reader.readLine()) != null) {
+        if (line.isEmpty()) {
+          continue;
+        }
+        if (lines.size() == timestamps.length) {
+          timestamps = Arrays.copyOf(timestamps, timestamps.length * 2);
+        }
+        timestamps[lines.size()] = parser.parse(line);
+        lines.add(line);
+        bufferedBytes += LINE_OVERHEAD + 2L * line.length();
+        if (bufferedBytes >= memoryBudget) {
+          runs.add(writeRun(lines, timestamps));
+          lines.clear();
+          bufferedBytes = 0;
+        }
+      }
+      if (!lines.isEmpty() || runs.isEmpty()) {
+        runs.add(writeRun(lines, timestamps));
+      }
+    }
+
+    File sortedFile = File.createTempFile("sorted_event_log", ".csv");
+    sortedFile.deleteOnExit();
+    try {
+      mergeRuns(runs, header, sortedFile);
+    } finally {
+      for (File run : runs) {
+        run.delete();
+      }
+    }
+    System.out.println("done (" + runs.size() + " run" + (runs.size() > 1 ? "s" : "") + ").");
+    return sortedFile;
+  }
+
+  // The rows are handled as ISO-8859-1 so that every byte is passed through unchanged, independent of the encoding
+  private static BufferedReader openReader(String filePath) throws IOException {
+    return new BufferedReader(new InputStreamReader(new FileInputStream(filePath), StandardCharsets.ISO_8859_1), STREAM_BUFFER_SIZE);
+  }
+
+  private static File writeRun(List<String> lines, long[] timestamps) throws IOException {
+    int[] order = sortedOrder(timestamps, lines.size());
+    File run = File.createTempFile("event_log_run", ".bin");
+    run.deleteOnExit();
+    try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(run), STREAM_BUFFER_SIZE))) {
+      for (int index : order) {
+        byte[] bytes = lines.get(index).getBytes(StandardCharsets.ISO_8859_1);
+        output.writeLong(timestamps[index]);
+        output.writeInt(bytes.length);
+        output.write(bytes);
+      }
+    }
+    return run;
+  }
+
+  // k-way merge of the runs, rows with equal timestamps are taken from earlier runs first
+  private static void mergeRuns(List<File> runs, String header, File target) throws IOException {
+    PriorityQueue<RunReader> queue = new PriorityQueue<>((a, b) -> a.timestamp != b.timestamp
+        ? Long.compare(a.timestamp, b.timestamp)
+        : Integer.compare(a.runIndex, b.runIndex));
+    List<RunReader> readers = new ArrayList<>();
+    try (BufferedOutputStream output = new BufferedOutputStream(new FileOutputStream(target), STREAM_BUFFER_SIZE)) {
+      for (int i = 0; i < runs.size(); i++) {
+        RunReader reader = new RunReader(runs.get(i), i);
+        readers.add(reader);
+        if (reader.next()) {
+          queue.add(reader);
+        }
+      }
+      output.write(header.getBytes(StandardCharsets.ISO_8859_1));
+      output.write('\n');
+      while (!queue.isEmpty()) {
+        RunReader reader = queue.poll();
+        output.write(reader.line, 0, reader.length);
+        output.write('\n');
+        if (reader.next()) {
+          queue.add(reader);
+        }
+      }
+    } finally {
+      for (RunReader reader : readers) {
+        reader.input.close();
+      }
+    }
+  }
+
+  private static class RunReader {
+    private final DataInputStream input;
+    private final int runIndex;
+    private long timestamp;
+    private byte[] line;
+    private int length;
+
+    RunReader(File run, int runIndex) throws IOException {
+      this.input = new DataInputStream(new BufferedInputStream(new FileInputStream(run), STREAM_BUFFER_SIZE / 16));
+      this.runIndex = runIndex;
+      this.line = new byte[256];
+    }
+
+    boolean next() throws IOException {
+      try {
+        this.timestamp = this.input.readLong();
+      } catch (EOFException e) {
+        return false;
+      }
+      this.length = this.input.readInt();
+      if (this.length > this.line.length) {
+        this.line = new byte[Math.max(this.length, this.line.length * 2)];
+      }
+      this.input.readFully(this.line, 0, this.length);
+      return true;
+    }
+  }
+
+  // Extracts the timestamp column of a row like the importer that will read the CSV-file
+  private static class TimestampParser {
+    private final Pattern separator;
+    private final int timestampColumnIndex;
+
+    TimestampParser(String columnSeparator, boolean debuggingMode, boolean literalSeparator) {
+      this.separator = Pattern.compile(literalSeparator ? Pattern.quote(columnSeparator) : columnSeparator);
+      this.timestampColumnIndex = debuggingMode ? 1 : 0;
+    }
+
+    long parse(String line) throws IOException {
+      String[] data = this.separator.split(line, this.timestampColumnIndex + 2);
+      if (data.length <= this.timestampColumnIndex) {
+        throw new IOException("Missing timestamp in row: " + line);
+      }
+      try {
+        return Long.parseLong(data[this.timestampColumnIndex].trim());
+      } catch (NumberFormatException e) {
+        throw new IOException("Invalid timestamp in row: " + line, e);
+      }
+    }
+  }
+}
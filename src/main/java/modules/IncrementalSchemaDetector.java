@@ -0,0 +1,132 @@
+package modules;
+
+import models.*;
+
+import java.util.*;
+import java.util.stream.Collectors;
+
+// Schema detection for event logs that grow by appended events. The relation counts and the event ids of the
+// attributes are updated in place, attribute clusters are only recomputed for activities with appended events, the
+// tables are only merged again if the detected tables changed and the columns of object classes with unchanged
+// attributes are only populated with the appended events. The resulting object classes equal the ones detected on all
+// events at once.
+public class IncrementalSchemaDetector {
+
+  private final List<Event> events;
+  private final RelationMatrix relations;
+  // Activities and attributes in the order of their first occurrence
+  private final Set<String> activityNames;
+  private final Map<String, EventIdSet> attributeEventIds;
+  private final Map<String, List<List<String>>> clusters;
+  private List<List<String>> detectedAttributeNames;
+  private List<ObjectClass> objectClasses;
+
+  public IncrementalSchemaDetector() {
+    this.events = new ArrayList<>();
+    this.relations = new RelationMatrix();
+    this.activityNames = new LinkedHashSet<>();
+    this.attributeEventIds = new LinkedHashMap<>();
+    this.clusters = new HashMap<>();
+    this.detectedAttributeNames = null;
+    this.objectClasses = new ArrayList<>();
+  }
+
+  /**
+   * Add events to the log and update the detected object classes
+   * @param appendedEvents events with ids above the ids of all events added before
+   * @return
+   */
+  public SchemaUpdate append(List<Event> appendedEvents) {
+    Set<String> updatedActivities = new HashSet<>();
+    for (Event event : appendedEvents) {
+      String activityName = event.getActivity();
+      this.activityNames.add(activityName);
+      updatedActivities.add(activityName);
+      for (int i = 0; i < event.getAttributeCount(); i++) {
+        int attributeCode = event.getAttributeCode(i);
+        this.relations.increment(event.getActivityCode(), attributeCode);
+        this.attributeEventIds.computeIfAbsent(EventStore.ATTRIBUTES.decode(attributeCode), name -> new EventIdSet()).add(event.getId());
+      }
+    }
+    this.events.addAll(appendedEvents);
+
+    // The attributes of an isolated activity only relate to its own events, so only its own events change its clusters
+    for (String activityName : updatedActivities) {
+      this.clusters.remove(activityName);
+    }
+
+    A2AMapping mapping = this.createMapping();
+    List<ObjectClass> detectedObjectClasses = new ArrayList<>();
+    SchemaDetector.detectIsolatedActivityIsolatedAttributeRelations(mapping, detectedObjectClasses);
+    SchemaDetector.detectIsolatedActivityNonIsolatedAttributeRelations(mapping, detectedObjectClasses, this.clusters);
+    SchemaDetector.detectNonIsolatedActivityIsolatedAttributeRelations(mapping, detectedObjectClasses);
+    SchemaDetector.detectNonIsolatedActivityNonIsolatedAttributeRelations(mapping, detectedObjectClasses);
+
+    List<List<String>> detectedAttributeNames = detectedObjectClasses.stream()
+        .map(ObjectClass::getAttributeNames)
+        .collect(Collectors.toList());
+    if (detectedAttributeNames.equals(this.detectedAttributeNames)) {
+      SchemaDetector.populateColumns(this.objectClasses, appendedEvents);
+      return new SchemaUpdate(this.objectClasses, new ArrayList<>(), new ArrayList<>(), new ArrayList<>());
+    }
+    this.detectedAttributeNames = detectedAttributeNames;
+
+    // Object classes with the attributes of a previous object class keep its columns, even if their position and thus
+    // their name changed. Only object classes with new attribute sets are populated with all events.
+    List<ObjectClass> mergedObjectClasses = SchemaDetector.mergeTables(detectedObjectClasses);
+    Map<Set<String>, ObjectClass> previousObjectClasses = new HashMap<>();
+    for (ObjectClass previousObjectClass : this.objectClasses) {
+      previousObjectClasses.putIfAbsent(new HashSet<>(previousObjectClass.getAttributeNames()), previousObjectClass);
+    }
+    List<ObjectClass> retainedObjectClasses = new ArrayList<>();
+    List<ObjectClass> renamedObjectClasses = new ArrayList<>();
+    List<ObjectClass> addedObjectClasses = new ArrayList<>();
+    Set<ObjectClass> matchedObjectClasses = Collections.newSetFromMap(new IdentityHashMap<>());
+    for (int i = 0; i < mergedObjectClasses.size(); i++) {
+      ObjectClass objectClass = mergedObjectClasses.get(i);
+      ObjectClass previousObjectClass = previousObjectClasses.remove(new HashSet<>(objectClass.getAttributeNames()));
+      if (previousObjectClass == null) {
+        addedObjectClasses.add(objectClass);
+        continue;
+      }
+      matchedObjectClasses.add(previousObjectClass);
+      if (previousObjectClass.getName().equals(objectClass.getName())) {
+        previousObjectClass.setAttributeNames(objectClass.getAttributeNames());
+        mergedObjectClasses.set(i, previousObjectClass);
+        retainedObjectClasses.add(previousObjectClass);
+      } else {
+        objectClass.setAttributes(previousObjectClass.getAttributes());
+        renamedObjectClasses.add(objectClass);
+        retainedObjectClasses.add(objectClass);
+      }
+    }
+    List<ObjectClass> removedObjectClasses = this.objectClasses.stream()
+        .filter(previousObjectClass -> !matchedObjectClasses.contains(previousObjectClass))
+        .collect(Collectors.toList());
+    SchemaDetector.populateColumns(retainedObjectClasses, appendedEvents);
+    SchemaDetector.populateColumns(addedObjectClasses, this.events);
+
+    this.objectClasses = mergedObjectClasses;
+    return new SchemaUpdate(mergedObjectClasses, addedObjectClasses, removedObjectClasses, renamedObjectClasses);
+  }
+
+  public List<ObjectClass> getObjectClasses() {
+    return objectClasses;
+  }
+
+  // Mapping of all events added so far, inserted in the order of first occurrence like SchemaDetector.generateA2AMapping
+  private A2AMapping createMapping() {
+    Map<String, Activity> activities = new HashMap<>();
+    for (String activityName : this.activityNames) {
+      activities.put(activityName, new Activity(activityName));
+    }
+    Map<String, Attribute> attributes = new HashMap<>();
+    for (Map.Entry<String, EventIdSet> attribute : this.attributeEventIds.entrySet()) {
+      attributes.put(attribute.getKey(), new Attribute(attribute.getKey(), attribute.getValue()));
+    }
+
+    A2AMapping mapping = new A2AMapping(this.relations);
+    SchemaDetector.addRelations(mapping, activities, attributes);
+    return mapping;
+  }
+}
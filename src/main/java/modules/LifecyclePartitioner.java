@@ -0,0 +1,166 @@
+package modules;
+
+import helpers.ConcurrencyHelper;
+import helpers.ObjectLifecycleDetector;
+import models.Column;
+import models.Event;
+import models.EventStore;
+import models.IntIntMap;
+import models.ObjectClass;
+import models.StringDictionary;
+
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+// Parallel lifecycle estimation of a single large object class. Events sharing the value of an identifying column,
+// i.e. a column whose weight alone exceeds the similarity threshold, are connected, and the connected components are
+// distributed over partitions that are estimated independently. The instances of all partitions are combined into one
+// transition matrix. Events of different partitions can no longer be assigned to the same instance by their transition
+// probabilities or by weaker similarities, so the result may differ from the estimation of the whole class.
+public class LifecyclePartitioner {
+
+  // Partitions per thread, so the work-stealing pool can balance partitions of different effort
+  private static final int PARTITIONS_PER_THREAD = 4;
+
+  /**
+   * Estimate the lifecycle of the object class of the detector in partitions, the detector takes the combined instances
+   * @param detector detector of the whole object class with its limits set
+   * @param pool
+   * @param threads
+   */
+  public static void estimate(ObjectLifecycleDetector detector, ExecutorService pool, int threads) {
+    // The time limit applies to the whole object class, partitions waiting for a worker do not get a time limit of
+    // their own
+    long deadline = System.nanoTime() + detector.getTimeLimit() * 1000000;
+    if (detector.getTimeLimit() > 0) {
+      detector.setDeadline(deadline);
+    }
+    ObjectClass objectClass = detector.getObjectClass();
+    List<List<Event>> partitions = partition(objectClass, detector.getSimilarityThreshold(), threads * PARTITIONS_PER_THREAD);
+    if (partitions.size() <= 1) {
+      detector.run();
+      return;
+    }
+    System.out.println("(" + objectClass.getName() + ") - Estimating " + partitions.size() + " partitions in parallel");
+
+    List<ObjectLifecycleDetector> partitionDetectors = new ArrayList<>();
+    for (List<Event> partition : partitions) {
+      ObjectLifecycleDetector partitionDetector = new ObjectLifecycleDetector(objectClass, partition, detector.getSimilarityThreshold());
+      partitionDetector.setIterationLimit(detector.getIterationLimit());
+      if (detector.getTimeLimit() > 0) {
+        partitionDetector.setDeadline(deadline);
+      }
+      partitionDetector.setInactivityTimeout(detector.getInactivityTimeout());
+      partitionDetectors.add(partitionDetector);
+    }
+    List<Future<Void>> futures = ConcurrencyHelper.startAll(pool, partitionDetectors);
+    ConcurrencyHelper.syncAll(futures);
+    detector.combine(partitionDetectors);
+  }
+
+  /**
+   * Split the relevant events of the object class into partitions of connected components
+   * @param objectClass object class with similarity weights
+   * @param similarityThreshold
+   * @param partitionCount maximum number of partitions
+   * @return events of each partition in their original order, partitions in the order of their first events
+   */
+  public static List<List<Event>> partition(ObjectClass objectClass, double similarityThreshold, int partitionCount) {
+    List<Event> events = objectClass.getRelevantEvents();
+    List<Column> identifyingColumns = new ArrayList<>();
+    for (Column column : objectClass.getAttributes().values()) {
+      if (objectClass.getHighestSimilarityScore() > 0
+          && column.getSimilarityWeight() / objectClass.getHighestSimilarityScore() > similarityThreshold) {
+        identifyingColumns.add(column);
+      }
+    }
+    if (identifyingColumns.isEmpty() || partitionCount <= 1) {
+      return Collections.singletonList(events);
+    }
+
+    // Union-find over the positions of the events, each value is connected to the first event having it. Empty values
+    // do not identify an instance and would connect most events.
+    int[] parents = new int[events.size()];
+    int[] sizes = new int[events.size()];
+    for (int i = 0; i < parents.length; i++) {
+      parents[i] = i;
+      sizes[i] = 1;
+    }
+    for (Column column : identifyingColumns) {
+      IntIntMap firstPositions = new IntIntMap();
+      for (int i = 0; i < events.size(); i++) {
+        int value = events.get(i).findValueCode(column.getAttributeCode());
+        if (value == StringDictionary.UNKNOWN || value == EventStore.EMPTY_VALUE) {
+          continue;
+        }
+        int firstPosition = firstPositions.get(value, -1);
+        if (firstPosition < 0) {
+          firstPositions.put(value, i);
+        } else {
+          union(parents, sizes, firstPosition, i);
+        }
+      }
+    }
+
+    // Largest components first to the partition with the fewest events
+    IntIntMap componentIndices = new IntIntMap();
+    List<Integer> componentSizes = new ArrayList<>();
+    for (int i = 0; i < events.size(); i++) {
+      int root = find(parents, i);
+      if (!componentIndices.containsKey(root)) {
+        componentIndices.put(root, componentSizes.size());
+        componentSizes.add(sizes[root]);
+      }
+    }
+    int[] componentPartitions = new int[componentSizes.size()];
+    Integer[] order = new Integer[componentSizes.size()];
+    for (int i = 0; i < order.length; i++) {
+      order[i] = i;
+    }
+    Arrays.sort(order, (a, b) -> Integer.compare(componentSizes.get(b), componentSizes.get(a)));
+    PriorityQueue<long[]> partitionSizes = new PriorityQueue<>((a, b) -> a[0] != b[0] ? Long.compare(a[0], b[0]) : Long.compare(a[1], b[1]));
+    for (int i = 0; i < Math.min(partitionCount, componentSizes.size()); i++) {
+      partitionSizes.add(new long[]{0, i});
+    }
+    for (int componentIndex : order) {
+      long[] smallest = partitionSizes.poll();
+      componentPartitions[componentIndex] = (int) smallest[1];
+      smallest[0] += componentSizes.get(componentIndex);
+      partitionSizes.add(smallest);
+    }
+
+    List<List<Event>> partitions = new ArrayList<>();
+    for (int i = 0; i < Math.min(partitionCount, componentSizes.size()); i++) {
+      partitions.add(new ArrayList<>());
+    }
+    for (int i = 0; i < events.size(); i++) {
+      partitions.get(componentPartitions[componentIndices.get(find(parents, i), -1)]).add(events.get(i));
+    }
+    partitions.sort(Comparator.comparingInt(partition -> partition.get(0).getId()));
+    return partitions;
+  }
+
+  private static int find(int[] parents, int position) {
+    while (parents[position] != position) {
+      parents[position] = parents[parents[position]];
+      position = parents[position];
+    }
+    return position;
+  }
+
+  private static void union(int[] parents, int[] sizes, int first, int second) {
+    int firstRoot = find(parents, first);
+    int secondRoot = find(parents, second);
+    if (firstRoot == secondRoot) {
+      return;
+    }
+    if (sizes[firstRoot] < sizes[secondRoot]) {
+      int root = firstRoot;
+      firstRoot = secondRoot;
+      secondRoot = root;
+    }
+    parents[secondRoot] = firstRoot;
+    sizes[firstRoot] += sizes[secondRoot];
+  }
+}
@@ -0,0 +1,503 @@
+package modules;
+
+import models.StringDictionary;
+import models.Event;
+import models.EventStore;
+import models.RelationStatistics;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+// Reads the event log from a memory mapping of the CSV-file. Separators and line breaks are detected on the raw bytes,
+// timestamps are parsed without intermediate strings and strings are only created once per distinct value. Like
+// BufferedReader.readLine, '\n', '\r' and "\r\n" end a line, the empty line between '\r' and '\n' is skipped.
+// The rows can be parsed concurrently in byte ranges that are aligned on line boundaries.
+public class MappedCSVReader {
+
+  // Files exceeding the maximum size of a single mapping are processed in consecutive windows
+  private static final int MAX_WINDOW_SIZE = Integer.MAX_VALUE;
+  // Number of byte ranges per thread, more ranges than threads compensate for unevenly long rows
+  private static final int RANGES_PER_THREAD = 4;
+  private static final int SCAN_BUFFER_SIZE = 64 * 1024;
+
+  private final String filePath;
+  private final byte[] separator;
+  private final int caseIdColumnIndex;
+  private final int timestampColumnIndex;
+  private final int activityColumnIndex;
+  private final int firstOptionalAttributeColumnIndex;
+  private String[] columns;
+  private int[] columnCodes;
+
+  public MappedCSVReader(String filePath, String columnSeparator, boolean debuggingMode) {
+    if (columnSeparator.isEmpty()) {
+      throw new IllegalArgumentException("The column separator must not be empty");
+    }
+    this.filePath = filePath;
+    this.separator = columnSeparator.getBytes(StandardCharsets.UTF_8);
+    this.caseIdColumnIndex = debuggingMode ? 0 : -1;
+    this.timestampColumnIndex = debuggingMode ? 1 : 0;
+    this.activityColumnIndex = debuggingMode ? 2 : 1;
+    this.firstOptionalAttributeColumnIndex = debuggingMode ? 3 : 2;
+    this.columns = new String[0];
+    this.columnCodes = new int[0];
+  }
+
+  public List<Event> read() throws IOException {
+    return this.read(1);
+  }
+
+  /**
+   * Parse the event log using the given number of threads. Event ids are assigned in row order, independent of the
+   * number of threads.
+   * @param threads
+   * @return
+   * @throws IOException
+   */
+  public List<Event> read(int threads) throws IOException {
+    return this.read(threads, null);
+  }
+
+  /**
+   * Parse the event log and collect the activity-attribute relations of the parsed rows
+   * @param threads
+   * @param statistics filled with the relations of all events, ignored if null
+   * @return
+   * @throws IOException
+   */
+  public List<Event> read(int threads, RelationStatistics statistics) throws IOException {
+    try (RandomAccessFile file = new RandomAccessFile(this.filePath, "r"); FileChannel channel = file.getChannel()) {
+      long size = channel.size();
+      long dataStart = this.readHeader(channel, size);
+
+      List<RangeParser> parsers = new ArrayList<>();
+      int rangeCount = threads > 1 ? threads * RANGES_PER_THREAD : 1;
+      long rangeStart = dataStart;
+      for (int i = 1; i <= rangeCount && rangeStart < size; i++) {
+        long rangeEnd = i == rangeCount
+            ? size
+            : Math.max(rangeStart, nextLineStart(channel, dataStart + (size - dataStart) * i / rangeCount, size));
+        if (rangeEnd > rangeStart) {
+          parsers.add(new RangeParser(channel, rangeStart, rangeEnd, statistics != null));
+        }
+        rangeStart = rangeEnd;
+      }
+
+      if (threads > 1 && parsers.size() > 1) {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+          List<Future<Void>> futures = new ArrayList<>();
+          for (RangeParser parser : parsers) {
+            futures.add(executor.submit(parser));
+          }
+          for (Future<Void> future : futures) {
+            future.get();
+          }
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          throw new IOException("Import was interrupted", e);
+        } catch (ExecutionException e) {
+          if (e.getCause() instanceof IOException) {
+            throw (IOException) e.getCause();
+          }
+          throw new IOException(e.getCause());
+        } finally {
+          executor.shutdownNow();
+        }
+      } else {
+        for (RangeParser parser : parsers) {
+          parser.call();
+        }
+      }
+
+      return stitch(parsers, statistics);
+    }
+  }
+
+  public String[] getColumns() {
+    return columns;
+  }
+
+  // Append the parsed ranges to a single store in file order. The ids of each range are shifted by the number of events
+  // in all previous ranges and the range-local codes are replaced by the codes of the shared dictionaries.
+  private static List<Event> stitch(List<RangeParser> parsers, RelationStatistics statistics) {
+    int eventCount = parsers.stream().mapToInt(parser -> parser.eventCount).sum();
+    EventStore store = new EventStore(eventCount);
+    for (RangeParser parser : parsers) {
+      int offset = store.size();
+      int[] activityCodes = parser.activities.encode(EventStore.ACTIVITIES);
+      int[] valueCodes = parser.values.encode(EventStore.VALUES);
+      if (statistics != null) {
+        statistics.merge(parser.statistics, activityCodes, offset);
+      }
+      int attributeCount = parser.attributeOffsets[parser.eventCount];
+      for (int i = 0; i < attributeCount; i++) {
+        parser.valueCodes[i] = valueCodes[parser.valueCodes[i]];
+      }
+      for (int i = 0; i < parser.eventCount; i++) {
+        int caseId = parser.caseIds[i] == StringDictionary.UNKNOWN ? EventStore.EMPTY_VALUE : valueCodes[parser.caseIds[i]];
+        int start = parser.attributeOffsets[i];
+        store.append(offset + i, caseId, parser.timestamps[i], activityCodes[parser.activityCodes[i]],
+            parser.attributeCodes, parser.valueCodes, start, parser.attributeOffsets[i + 1] - start);
+      }
+    }
+    store.trimToSize();
+    return store.getEvents();
+  }
+
+  private long readHeader(FileChannel channel, long size) throws IOException {
+    long headerEnd = nextLineStart(channel, 0, size);
+    ByteBuffer header = ByteBuffer.allocate((int) headerEnd);
+    while (header.hasRemaining()) {
+      if (channel.read(header, header.position()) < 0) {
+        break;
+      }
+    }
+    int contentEnd = header.position();
+    while (contentEnd > 0 && (header.get(contentEnd - 1) == '\n' || header.get(contentEnd - 1) == '\r')) {
+      contentEnd--;
+    }
+
+    List<String> headerColumns = new ArrayList<>();
+    int fieldStart = 0;
+    int index = 0;
+    while (index <= contentEnd - this.separator.length) {
+      if (this.matchesSeparator(header, index)) {
+        headerColumns.add(new String(header.array(), fieldStart, index - fieldStart, StandardCharsets.UTF_8));
+        fieldStart = index + this.separator.length;
+        index = fieldStart;
+      } else {
+        index++;
+      }
+    }
+    headerColumns.add(new String(header.array(), fieldStart, contentEnd - fieldStart, StandardCharsets.UTF_8));
+    this.columns = headerColumns.toArray(new String[0]);
+    this.columnCodes = new int[this.columns.length];
+    for (int i = this.firstOptionalAttributeColumnIndex; i < this.columns.length; i++) {
+      this.columnCodes[i] = EventStore.ATTRIBUTES.encode(this.columns[i]);
+    }
+    return headerEnd;
+  }
+
+  // Position of the first line beginning at or after the given position
+  private static long nextLineStart(FileChannel channel, long position, long size) throws IOException {
+    if (position == 0) {
+      position = 1;
+    }
+    ByteBuffer buffer = ByteBuffer.allocate(SCAN_BUFFER_SIZE);
+    // A line begins at the given position if the preceding byte is a line break
+    long scanPosition = position - 1;
+    while (scanPosition < size) {
+      buffer.clear();
+      int read = channel.read(buffer, scanPosition);
+      if (read <= 0) {
+        break;
+      }
+      for (int i = 0; i < read; i++) {
+        if (isLineBreak(buffer.get(i))) {
+          return scanPosition + i + 1;
+        }
+      }
+      scanPosition += read;
+    }
+    return size;
+  }
+
+  private static boolean isLineBreak(byte character) {
+    return character == '\n' || character == '\r';
+  }
+
+  private boolean matchesSeparator(ByteBuffer buffer, int index) {
+    for (int i = 0; i < this.separator.length; i++) {
+      if (buffer.get(index + i) != this.separator[i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  // Parses all rows within a byte range into columns. Event ids, activity and value codes are local to the range.
+  private class RangeParser implements Callable<Void> {
+
+    private final FileChannel channel;
+    private final long start;
+    private final long end;
+    private final ByteDictionary activities;
+    private final ByteDictionary values;
+    private final RelationStatistics statistics;
+    private int eventCount;
+    private long[] timestamps;
+    private int[] caseIds;
+    private int[] activityCodes;
+    private int[] attributeOffsets;
+    private int[] attributeCodes;
+    private int[] valueCodes;
+
+    RangeParser(FileChannel channel, long start, long end, boolean collectStatistics) {
+      this.channel = channel;
+      this.start = start;
+      this.end = end;
+      this.activities = new ByteDictionary();
+      this.values = new ByteDictionary();
+      this.statistics = collectStatistics ? new RelationStatistics() : null;
+      this.eventCount = 0;
+      this.timestamps = new long[1024];
+      this.caseIds = new int[1024];
+      this.activityCodes = new int[1024];
+      this.attributeOffsets = new int[1025];
+      this.attributeCodes = new int[4096];
+      this.valueCodes = new int[4096];
+    }
+
+    @Override
+    public Void call() throws IOException {
+      long position = this.start;
+      while (position < this.end) {
+        int windowSize = (int) Math.min(MAX_WINDOW_SIZE, this.end - position);
+        MappedByteBuffer window = this.channel.map(FileChannel.MapMode.READ_ONLY, position, windowSize);
+        int limit = windowSize;
+        if (position + windowSize < this.end) {
+          // Only complete lines are processed, the remainder is read as part of the next window
+          limit = this.lastLineBreak(window, windowSize) + 1;
+          if (limit == 0) {
+            throw new IOException("Line starting at byte " + position + " exceeds the maximum mapping size");
+          }
+        }
+        this.readRows(window, position, limit);
+        position += limit;
+      }
+      return null;
+    }
+
+    private void readRows(MappedByteBuffer window, long windowPosition, int limit) throws IOException {
+      int lineStart = 0;
+      while (lineStart < limit) {
+        int lineEnd = this.nextLineBreak(window, lineStart, limit);
+        // Blank lines do not describe events
+        if (lineEnd > lineStart) {
+          this.readRow(window, lineStart, lineEnd, windowPosition + lineStart);
+        }
+        lineStart = lineEnd + 1;
+      }
+    }
+
+    private void readRow(MappedByteBuffer window, int start, int end, long filePosition) throws IOException {
+      this.ensureEventCapacity();
+      int row = this.eventCount;
+      int attributeCount = this.attributeOffsets[row];
+      boolean hasTimestamp = false;
+      boolean hasActivity = false;
+      this.caseIds[row] = StringDictionary.UNKNOWN;
+
+      int columnIndex = 0;
+      int fieldStart = start;
+      while (true) {
+        int fieldEnd = this.nextSeparator(window, fieldStart, end);
+        if (columnIndex == timestampColumnIndex) {
+          this.timestamps[row] = this.parseLong(window, fieldStart, fieldEnd);
+          hasTimestamp = true;
+        } else if (columnIndex == activityColumnIndex) {
+          this.activityCodes[row] = this.activities.encode(window, fieldStart, fieldEnd);
+          hasActivity = true;
+        } else if (columnIndex == caseIdColumnIndex) {
+          this.caseIds[row] = this.values.encode(window, fieldStart, fieldEnd);
+        } else if (columnIndex >= firstOptionalAttributeColumnIndex && fieldEnd > fieldStart) {
+          if (columnIndex >= columns.length) {
+            throw new IOException("Row at byte " + filePosition + " contains more columns than the header");
+          }
+          if (attributeCount == this.attributeCodes.length) {
+            this.attributeCodes = Arrays.copyOf(this.attributeCodes, attributeCount * 2);
+            this.valueCodes = Arrays.copyOf(this.valueCodes, attributeCount * 2);
+          }
+          this.attributeCodes[attributeCount] = columnCodes[columnIndex];
+          this.valueCodes[attributeCount] = this.values.encode(window, fieldStart, fieldEnd);
+          attributeCount++;
+        }
+        if (fieldEnd == end) {
+          break;
+        }
+        fieldStart = fieldEnd + separator.length;
+        columnIndex++;
+      }
+
+      if (!hasTimestamp || !hasActivity) {
+        throw new IOException("Row at byte " + filePosition + " does not provide a timestamp and an activity");
+      }
+      this.attributeOffsets[row + 1] = attributeCount;
+      if (this.statistics != null) {
+        int rowStart = this.attributeOffsets[row];
+        this.statistics.add(row, this.activityCodes[row], this.attributeCodes, rowStart, attributeCount - rowStart);
+      }
+      this.eventCount++;
+    }
+
+    private void ensureEventCapacity() {
+      if (this.eventCount == this.timestamps.length) {
+        int capacity = this.eventCount * 2;
+        this.timestamps = Arrays.copyOf(this.timestamps, capacity);
+        this.caseIds = Arrays.copyOf(this.caseIds, capacity);
+        this.activityCodes = Arrays.copyOf(this.activityCodes, capacity);
+        this.attributeOffsets = Arrays.copyOf(this.attributeOffsets, capacity + 1);
+      }
+    }
+
+    private long parseLong(MappedByteBuffer window, int start, int end) {
+      int index = start;
+      boolean negative = false;
+      if (index < end && (window.get(index) == '-' || window.get(index) == '+')) {
+        negative = window.get(index) == '-';
+        index++;
+      }
+      // Values that may overflow or contain other characters are handed to the regular parser (including its errors)
+      if (index == end || end - index > 18) {
+        return Long.parseLong(this.decode(window, start, end));
+      }
+      long value = 0;
+      for (; index < end; index++) {
+        int digit = window.get(index) - '0';
+        if (digit < 0 || digit > 9) {
+          return Long.parseLong(this.decode(window, start, end));
+        }
+        value = value * 10 + digit;
+      }
+      return negative ? -value : value;
+    }
+
+    private String decode(MappedByteBuffer window, int start, int end) {
+      byte[] bytes = new byte[end - start];
+      for (int i = 0; i < bytes.length; i++) {
+        bytes[i] = window.get(start + i);
+      }
+      return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private int nextSeparator(MappedByteBuffer window, int start, int end) {
+      int lastStart = end - separator.length;
+      for (int i = start; i <= lastStart; i++) {
+        if (window.get(i) == separator[0] && matchesSeparator(window, i)) {
+          return i;
+        }
+      }
+      return end;
+    }
+
+    private int nextLineBreak(MappedByteBuffer window, int start, int limit) {
+      for (int i = start; i < limit; i++) {
+        if (isLineBreak(window.get(i))) {
+          return i;
+        }
+      }
+      return limit;
+    }
+
+    private int lastLineBreak(MappedByteBuffer window, int limit) {
+      for (int i = limit - 1; i >= 0; i--) {
+        if (isLineBreak(window.get(i))) {
+          return i;
+        }
+      }
+      return -1;
+    }
+  }
+
+  // Open addressing hash table assigning local codes to byte sequences, so repeated values are only decoded once
+  private static class ByteDictionary {
+
+    private int[] slots;
+    private int[] hashes;
+    private byte[][] keys;
+    private int size;
+
+    ByteDictionary() {
+      this.slots = new int[64];
+      this.hashes = new int[32];
+      this.keys = new byte[32][];
+      this.size = 0;
+    }
+
+    int encode(ByteBuffer buffer, int start, int end) {
+      int hash = 1;
+      for (int i = start; i < end; i++) {
+        hash = 31 * hash + buffer.get(i);
+      }
+      // Finalizer of MurmurHash3, spreads similar values (e.g. consecutive ids) across the table
+      hash ^= hash >>> 16;
+      hash *= 0x85ebca6b;
+      hash ^= hash >>> 13;
+      hash *= 0xc2b2ae35;
+      hash ^= hash >>> 16;
+      int mask = this.slots.length - 1;
+      int slot = hash & mask;
+      // Slots store code + 1, empty slots are 0
+      while (this.slots[slot] != 0) {
+        int code = this.slots[slot] - 1;
+        if (this.hashes[code] == hash && this.matches(this.keys[code], buffer, start, end)) {
+          return code;
+        }
+        slot = (slot + 1) & mask;
+      }
+
+      byte[] key = new byte[end - start];
+      for (int i = 0; i < key.length; i++) {
+        key[i] = buffer.get(start + i);
+      }
+      if (this.size == this.keys.length) {
+        this.keys = Arrays.copyOf(this.keys, this.size * 2);
+        this.hashes = Arrays.copyOf(this.hashes, this.size * 2);
+      }
+      int code = this.size++;
+      this.keys[code] = key;
+      this.hashes[code] = hash;
+      this.slots[slot] = code + 1;
+      if (this.size * 2 > this.slots.length) {
+        this.rehash();
+      }
+      return code;
+    }
+
+    // Encode all byte sequences with the given dictionary, the result maps local codes to the dictionary codes
+    int[] encode(StringDictionary dictionary) {
+      int[] codes = new int[this.size];
+      for (int i = 0; i < this.size; i++) {
+        codes[i] = dictionary.encode(new String(this.keys[i], StandardCharsets.UTF_8));
+      }
+      return codes;
+    }
+
+    private boolean matches(byte[] key, ByteBuffer buffer, int start, int end) {
+      if (key.length != end - start) {
+        return false;
+      }
+      for (int i = 0; i < key.length; i++) {
+        if (key[i] != buffer.get(start + i)) {
+          return false;
+        }
+      }
+      return true;
+    }
+
+    private void rehash() {
+      this.slots = new int[this.slots.length * 2];
+      int mask = this.slots.length - 1;
+      for (int code = 0; code < this.size; code++) {
+        int slot = this.hashes[code] & mask;
+        while (this.slots[slot] != 0) {
+          slot = (slot + 1) & mask;
+        }
+        this.slots[slot] = code + 1;
+      }
+    }
+  }
+}
@@ -1,23 +1,76 @@
 package modules;
 
+import helpers.ConcurrencyHelper;
 import models.*;
 
 import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.function.BiPredicate;
 import java.util.stream.Collectors;
 
 // Concept inspired by: https://doi.org/10.1007/978-3-030-62522-1_5
 public class SchemaDetector {
 
+  // Number of chunks per thread when counting relations, more chunks than threads balance uneven chunks
+  private static final int CHUNKS_PER_THREAD = 4;
+
   public static void populateColumns(List<ObjectClass> objectClasses, List<Event> events) {
+    populateColumns(objectClasses, events, ConcurrencyHelper.defaultParallelism());
+  }
+
+  /**
+   * Populate the columns of all object classes with the non-empty values of the events in a single pass over the
+   * events, which are processed in parallel chunks
+   * @param objectClasses
+   * @param events
+   * @param threads
+   */
+  public static void populateColumns(List<ObjectClass> objectClasses, List<Event> events, int threads) {
+    // Inverted index from attribute codes to the positions of their columns
+    List<Column> columns = new ArrayList<>();
+    int[][] columnIndex = new int[EventStore.ATTRIBUTES.size()][];
     for (ObjectClass objectClass : objectClasses) {
-      List<Column> columns = new ArrayList<>(objectClass.getAttributes().values());
-      // Populate columns with values
-      for (Event event : events) {
-        for (Column column : columns) {
-          String value = event.getAttributes().get(column.getName());
-          if (value != null && !value.isEmpty()) {
-            column.add(event, value);
+      for (Column column : objectClass.getAttributes().values()) {
+        int attributeCode = column.getAttributeCode();
+        if (attributeCode >= columnIndex.length) {
+          columnIndex = Arrays.copyOf(columnIndex, attributeCode + 1);
+        }
+        int[] positions = columnIndex[attributeCode] == null ? new int[0] : columnIndex[attributeCode];
+        positions = Arrays.copyOf(positions, positions.length + 1);
+        positions[positions.length - 1] = columns.size();
+        columnIndex[attributeCode] = positions;
+        columns.add(column);
+      }
+    }
+
+    int[][] index = columnIndex;
+    List<Callable<Column[]>> tasks = ConcurrencyHelper.split(events, threads * CHUNKS_PER_THREAD).stream()
+        .map(chunk -> (Callable<Column[]>) () -> {
+          Column[] chunkColumns = new Column[columns.size()];
+          for (Event event : chunk) {
+            for (int i = 0; i < event.getAttributeCount(); i++) {
+              int attributeCode = event.getAttributeCode(i);
+              int valueCode = event.getValueCode(i);
+              if (attributeCode >= index.length || index[attributeCode] == null || valueCode == EventStore.EMPTY_VALUE) {
+                continue;
+              }
+              for (int position : index[attributeCode]) {
+                if (chunkColumns[position] == null) {
+                  chunkColumns[position] = new Column(columns.get(position).getName());
+                }
+                chunkColumns[position].add(event.getId(), valueCode);
+              }
+            }
           }
+          return chunkColumns;
+        })
+        .collect(Collectors.toList());
+
+    // Append the values of the chunks in event order
+    for (Column[] chunkColumns : ConcurrencyHelper.callAll(tasks, threads)) {
+      for (int position = 0; position < chunkColumns.length; position++) {
+        if (chunkColumns[position] != null) {
+          columns.get(position).addAll(chunkColumns[position]);
         }
       }
     }
@@ -37,7 +90,8 @@ public class SchemaDetector {
   public static Map<String, Attribute> extractAttributes(List<Event> events) {
     Map<String, Attribute> attributeMap = new HashMap<>();
     for (Event event: events) {
-      for (String attributeName : event.getAttributes().keySet()) {
+      for (int i = 0; i < event.getAttributeCount(); i++) {
+        String attributeName = EventStore.ATTRIBUTES.decode(event.getAttributeCode(i));
         if (!attributeMap.containsKey(attributeName)) {
           attributeMap.put(attributeName, new Attribute(attributeName));
         }
@@ -81,6 +135,14 @@ public class SchemaDetector {
     }
 
     List<TableCandidate> tableCandidates = new ArrayList<>();
+    // Every key gets a random 64 bit hash, the hash of a key set is the XOR of its key hashes and candidates with
+    // identical key sets share the same key set hash
+    Map<String, Long> keyHashes = new HashMap<>();
+    Map<String, List<TableCandidate>> candidatesByKey = new HashMap<>();
+    Map<Long, TreeSet<Integer>> candidatesByKeySet = new HashMap<>();
+    long[] keySetHashes = new long[columnSets.size()];
+    // Candidates ordered by key count and position, entries get outdated when the key count of a candidate decreases
+    PriorityQueue<Long> queue = new PriorityQueue<>();
 
     for (int i = 0; i < columnSets.size(); i++) {
       Set<String> setKeys = new HashSet<>();
@@ -92,42 +154,40 @@ public class SchemaDetector {
           setAttributes.add(column);
         }
       }
-      tableCandidates.add(new TableCandidate(i, setKeys, setAttributes));
+      TableCandidate candidate = new TableCandidate(i, setKeys, setAttributes);
+      tableCandidates.add(candidate);
+      for (String key : setKeys) {
+        keySetHashes[i] ^= keyHashes.computeIfAbsent(key, k -> mix(keyHashes.size() + 1));
+        candidatesByKey.computeIfAbsent(key, k -> new ArrayList<>()).add(candidate);
+      }
+      candidatesByKeySet.computeIfAbsent(keySetHashes[i], hash -> new TreeSet<>()).add(i);
+      queue.add(queueEntry(candidate));
     }
 
     List<ObjectClass> mergedObjectClasses = new ArrayList<>();
+    boolean[] merged = new boolean[tableCandidates.size()];
 
-    while(!tableCandidates.isEmpty()) {
-      int minimumKeyCount = tableCandidates.stream().map(c -> c.getKeys().size()).mapToInt(x -> x).min().getAsInt();
-
-      Optional<TableCandidate> optCandidate = tableCandidates.stream().filter(c -> c.getKeys().size() == minimumKeyCount).findFirst();
-      if (!optCandidate.isPresent()) {
-        break;
+    while (!queue.isEmpty()) {
+      long entry = queue.poll();
+      TableCandidate candidate = tableCandidates.get((int) entry);
+      if (merged[candidate.getId()] || candidate.getKeys().size() != (int) (entry >>> 32)) {
+        continue;
       }
 
-      TableCandidate candidate = optCandidate.get();
-
       if (candidate.getKeys().isEmpty()) {
         mergedObjectClasses.add(new ObjectClass(mergedObjectClasses.size(), "ObjectClass_" + mergedObjectClasses.size(), new ArrayList<>(candidate.getAttributes())));
-        List<TableCandidate> filteredCandidates = tableCandidates.stream().filter(c -> c.getId() != candidate.getId()).collect(Collectors.toList());
-        tableCandidates = filteredCandidates;
+        merged[candidate.getId()] = true;
+        removeFromKeySet(candidatesByKeySet, keySetHashes[candidate.getId()], candidate.getId());
         continue;
       }
 
+      // Candidates with the same key set follow the candidate, as it is the first one with the minimum key count
       List<TableCandidate> mergeCandidates = new ArrayList<>();
       mergeCandidates.add(candidate);
-
-      for (TableCandidate possibleMergeCandidate : tableCandidates) {
-        if (candidate.getKeys().size() == possibleMergeCandidate.getKeys().size() && candidate.getId() != possibleMergeCandidate.getId()) {
-          boolean sameKeySet = true;
-          for (String candidateKey : candidate.getKeys()) {
-            if (!possibleMergeCandidate.getKeys().contains(candidateKey)) {
-              sameKeySet = false;
-            }
-          }
-          if (sameKeySet) {
-            mergeCandidates.add(possibleMergeCandidate);
-          }
+      for (int id : candidatesByKeySet.get(keySetHashes[candidate.getId()])) {
+        TableCandidate possibleMergeCandidate = tableCandidates.get(id);
+        if (id != candidate.getId() && candidate.getKeys().equals(possibleMergeCandidate.getKeys())) {
+          mergeCandidates.add(possibleMergeCandidate);
         }
       }
 
@@ -139,56 +199,144 @@ public class SchemaDetector {
 
       mergedObjectClasses.add(new ObjectClass(mergedObjectClasses.size(), "ObjectClass_" + mergedObjectClasses.size(), new ArrayList<>(mergeCandidateColumns)));
 
-      for (TableCandidate tableCandidate : tableCandidates) {
-        if (tableCandidate.getId() != candidate.getId()) {
-          for (String candidateKey : candidate.getKeys()) {
-            tableCandidate.deleteKey(candidateKey);
+      for (TableCandidate tableCandidate : mergeCandidates) {
+        merged[tableCandidate.getId()] = true;
+        removeFromKeySet(candidatesByKeySet, keySetHashes[tableCandidate.getId()], tableCandidate.getId());
+      }
+
+      // A key is only deleted once, as no remaining candidate has it afterwards
+      for (String candidateKey : candidate.getKeys()) {
+        for (TableCandidate tableCandidate : candidatesByKey.get(candidateKey)) {
+          int id = tableCandidate.getId();
+          if (merged[id]) {
+            continue;
           }
+          removeFromKeySet(candidatesByKeySet, keySetHashes[id], id);
+          tableCandidate.deleteKey(candidateKey);
+          keySetHashes[id] ^= keyHashes.get(candidateKey);
+          candidatesByKeySet.computeIfAbsent(keySetHashes[id], hash -> new TreeSet<>()).add(id);
+          queue.add(queueEntry(tableCandidate));
         }
       }
-
-      Set<Integer> usedCandidateIds = mergeCandidates
-              .stream()
-              .map(c -> c.getId())
-              .collect(Collectors.toSet());
-      List<TableCandidate> filteredTableCandidates = tableCandidates
-              .stream()
-              .filter(c -> !usedCandidateIds.contains(c.getId()))
-              .collect(Collectors.toList());
-      tableCandidates = filteredTableCandidates;
     }
 
     return mergedObjectClasses;
   }
 
+  private static long queueEntry(TableCandidate candidate) {
+    return ((long) candidate.getKeys().size() << 32) | candidate.getId();
+  }
+
+  private static void removeFromKeySet(Map<Long, TreeSet<Integer>> candidatesByKeySet, long keySetHash, int id) {
+    TreeSet<Integer> candidates = candidatesByKeySet.get(keySetHash);
+    candidates.remove(id);
+    if (candidates.isEmpty()) {
+      candidatesByKeySet.remove(keySetHash);
+    }
+  }
+
+  // SplitMix64 finalizer, spreads consecutive numbers over all 64 bits
+  private static long mix(long value) {
+    long z = value * 0x9E3779B97F4A7C15L;
+    z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+    z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+    return z ^ (z >>> 31);
+  }
+
   public static A2AMapping generateA2AMapping(List<Event> events) {
-    A2AMapping mapping = new A2AMapping();
+    return generateA2AMapping(events, ConcurrencyHelper.defaultParallelism());
+  }
 
+  /**
+   * Determine the relations between activities and attributes, the relations are counted in parallel chunks
+   * @param events
+   * @param threads
+   * @return
+   */
+  public static A2AMapping generateA2AMapping(List<Event> events, int threads) {
     Map<String, Activity> activities = extractActivities(events);
     Map<String, Attribute> attributes = extractAttributes(events);
 
-    for (Event event : events) {
-      Activity activity = activities.get(event.getActivity());
-      for (String attributeName : event.getAttributes().keySet()) {
-        Attribute attribute = attributes.get(attributeName);
-        mapping.incrementActivityToAttributeRelation(activity, attribute);
+    A2AMapping mapping = new A2AMapping(countRelations(events, threads));
+    addRelations(mapping, activities, attributes);
+    return mapping;
+  }
+
+  // Same mapping as generateA2AMapping(events), based on the relations collected while importing the events
+  public static A2AMapping generateA2AMapping(RelationStatistics statistics) {
+    // Insert in order of first occurrence like extractActivities and extractAttributes
+    Map<String, Activity> activities = new HashMap<>();
+    for (int i = 0; i < statistics.getActivityCount(); i++) {
+      String activityName = EventStore.ACTIVITIES.decode(statistics.getActivityCode(i));
+      activities.put(activityName, new Activity(activityName));
+    }
+    Map<String, Attribute> attributes = new HashMap<>();
+    for (int i = 0; i < statistics.getAttributeCount(); i++) {
+      String attributeName = EventStore.ATTRIBUTES.decode(statistics.getAttributeCode(i));
+      Attribute attribute = new Attribute(attributeName);
+      for (int eventId : statistics.getEventIds(i)) {
+        attribute.addEventId(eventId);
       }
+      attributes.put(attributeName, attribute);
+    }
+
+    A2AMapping mapping = new A2AMapping(statistics.getRelations());
+    addRelations(mapping, activities, attributes);
+    return mapping;
+  }
+
+  public static RelationMatrix countRelations(List<Event> events, int threads) {
+    int attributeBound = EventStore.ATTRIBUTES.size();
+    List<Callable<RelationMatrix>> tasks = ConcurrencyHelper.split(events, threads * CHUNKS_PER_THREAD).stream()
+        .map(chunk -> (Callable<RelationMatrix>) () -> {
+          RelationMatrix relations = new RelationMatrix(attributeBound);
+          for (Event event : chunk) {
+            for (int i = 0; i < event.getAttributeCount(); i++) {
+              relations.increment(event.getActivityCode(), event.getAttributeCode(i));
+            }
+          }
+          return relations;
+        })
+        .collect(Collectors.toList());
+
+    RelationMatrix relations = new RelationMatrix(attributeBound);
+    for (RelationMatrix chunkRelations : ConcurrencyHelper.callAll(tasks, threads)) {
+      relations.merge(chunkRelations, null);
+    }
+    return relations;
+  }
+
+  // Create the relations of the mapping in the iteration order of the activities and attributes
+  static void addRelations(A2AMapping mapping, Map<String, Activity> activities, Map<String, Attribute> attributes) {
+    List<Attribute> attributeList = new ArrayList<>(attributes.values());
+    int[] attributePositions = new int[EventStore.ATTRIBUTES.size()];
+    Arrays.fill(attributePositions, -1);
+    for (int i = 0; i < attributeList.size(); i++) {
+      attributePositions[attributeList.get(i).getCode()] = i;
     }
 
+    RelationMatrix relations = mapping.getActivityAttributeRelations();
     for (Activity activity : activities.values()) {
-      for (Attribute attribute : attributes.values()) {
-        int relationCount = mapping.getRelationCounter(activity, attribute);
-        if (relationCount > 0) {
-          ActivityAttributeRelation relation = new ActivityAttributeRelation(activity, attribute, relationCount);
-          activity.addAttributeRelation(relation);
-          attribute.addActivityRelation(relation);
+      // Only the non-zero counts of the activity are visited, in the order of the attributes map
+      int[] attributeCodes = relations.getAttributeCodes(activity.getCode());
+      int[] positions = new int[attributeCodes.length];
+      int count = 0;
+      for (int attributeCode : attributeCodes) {
+        if (attributeCode < attributePositions.length && attributePositions[attributeCode] >= 0) {
+          positions[count++] = attributePositions[attributeCode];
         }
       }
+      Arrays.sort(positions, 0, count);
+      for (int i = 0; i < count; i++) {
+        Attribute attribute = attributeList.get(positions[i]);
+        ActivityAttributeRelation relation = new ActivityAttributeRelation(activity, attribute, relations.get(activity.getCode(), attribute.getCode()));
+        activity.addAttributeRelation(relation);
+        attribute.addActivityRelation(relation);
+      }
     }
 
     mapping.setActivities(activities);
     mapping.setAttributes(attributes);
-    return mapping;
   }
 
   public static List<ObjectClass> detectIsolatedActivityIsolatedAttributeRelations(A2AMapping mapping, List<ObjectClass> objectClasses) {
@@ -236,7 +384,18 @@ public class SchemaDetector {
   }
 
   public static List<ObjectClass> detectIsolatedActivityNonIsolatedAttributeRelations(A2AMapping mapping, List<ObjectClass> objectClasses) {
-    // Isolated activity, non-isolated attribute
+    return detectIsolatedActivityNonIsolatedAttributeRelations(mapping, objectClasses, new HashMap<>());
+  }
+
+  /**
+   * Isolated activity, non-isolated attribute
+   * @param mapping
+   * @param objectClasses
+   * @param clusters attribute clusters by activity name, the clusters of contained activities are reused and the
+   *                 clusters of all other isolated activities are added
+   * @return
+   */
+  public static List<ObjectClass> detectIsolatedActivityNonIsolatedAttributeRelations(A2AMapping mapping, List<ObjectClass> objectClasses, Map<String, List<List<String>>> clusters) {
     List<Activity> isolatedActivities = new ArrayList<>();
     List<Attribute> nonIsolatedAttributes = new ArrayList<>();
 
@@ -246,45 +405,13 @@ public class SchemaDetector {
         break;
       }
       isolatedActivities.add(activity);
-      Map<Integer, List<Attribute>> rowCountMatcher = new HashMap();
       for (ActivityAttributeRelation relation : relations) {
-        int count = relation.getRelationCounter();
-        if (!rowCountMatcher.containsKey(count)) {
-          rowCountMatcher.put(count, new ArrayList<>());
-        }
-        rowCountMatcher.get(count).add(relation.getAttribute());
-      }
-      List<Integer> rowCounts = new ArrayList<>(rowCountMatcher.keySet());
-      Collections.sort(rowCounts);
-      Collections.reverse(rowCounts);
-
-      List<List<Attribute>> attributeClusters = new ArrayList<>();
-
-      for (int rowCount : rowCounts) {
-        List<Attribute> relatedAttributes = rowCountMatcher.get(rowCount);
-        for (Attribute attribute : relatedAttributes) {
-          nonIsolatedAttributes.add(attribute);
-
-          boolean matched = false;
-          for (List<Attribute> cluster : attributeClusters) {
-            for (Attribute column : cluster) {
-              Set<Integer> superSet = column.getEventIds();
-              Set<Integer> subset = attribute.getEventIds();
-              if (superSet.containsAll(subset)) {
-                cluster.add(attribute);
-                matched = true;
-                break;
-              }
-            }
-          }
-          if (!matched) {
-            attributeClusters.add(new ArrayList() {{ add(attribute); }});
-          }
-        }
+        nonIsolatedAttributes.add(relation.getAttribute());
       }
 
-      for (List<Attribute> cluster : attributeClusters) {
-        objectClasses.add(new ObjectClass(objectClasses.size(), "ObjectClass_" + objectClasses.size(), cluster.stream().map(Attribute::getName).collect(Collectors.toList())));
+      List<List<String>> attributeClusters = clusters.computeIfAbsent(activity.getName(), name -> clusterAttributes(relations));
+      for (List<String> cluster : attributeClusters) {
+        objectClasses.add(new ObjectClass(objectClasses.size(), "ObjectClass_" + objectClasses.size(), new ArrayList<>(cluster)));
       }
     }
 
@@ -292,6 +419,56 @@ public class SchemaDetector {
     return objectClasses;
   }
 
+  // Cluster the attributes of an activity in descending order of their relation counts by the inclusion of their events
+  private static List<List<String>> clusterAttributes(List<ActivityAttributeRelation> relations) {
+    return clusterAttributes(relations, (superSet, subset) -> superSet.getEventIds().containsAll(subset.getEventIds()));
+  }
+
+  /**
+   * Cluster the attributes of an activity in descending order of their relation counts
+   * @param relations
+   * @param contains whether the events of the first attribute include the events of the second one
+   * @return
+   */
+  static List<List<String>> clusterAttributes(List<ActivityAttributeRelation> relations, BiPredicate<Attribute, Attribute> contains) {
+    Map<Integer, List<Attribute>> rowCountMatcher = new HashMap();
+    for (ActivityAttributeRelation relation : relations) {
+      int count = relation.getRelationCounter();
+      if (!rowCountMatcher.containsKey(count)) {
+        rowCountMatcher.put(count, new ArrayList<>());
+      }
+      rowCountMatcher.get(count).add(relation.getAttribute());
+    }
+    List<Integer> rowCounts = new ArrayList<>(rowCountMatcher.keySet());
+    Collections.sort(rowCounts);
+    Collections.reverse(rowCounts);
+
+    List<List<Attribute>> attributeClusters = new ArrayList<>();
+
+    for (int rowCount : rowCounts) {
+      List<Attribute> relatedAttributes = rowCountMatcher.get(rowCount);
+      for (Attribute attribute : relatedAttributes) {
+        boolean matched = false;
+        for (List<Attribute> cluster : attributeClusters) {
+          for (Attribute column : cluster) {
+            if (contains.test(column, attribute)) {
+              cluster.add(attribute);
+              matched = true;
+              break;
+            }
+          }
+        }
+        if (!matched) {
+          attributeClusters.add(new ArrayList() {{ add(attribute); }});
+        }
+      }
+    }
+
+    return attributeClusters.stream()
+        .map(cluster -> cluster.stream().map(Attribute::getName).collect(Collectors.toList()))
+        .collect(Collectors.toList());
+  }
+
   public static List<ObjectClass> detectNonIsolatedActivityNonIsolatedAttributeRelations(A2AMapping mapping, List<ObjectClass> objectClasses) {
     // Non-isolated activity, non-isolated attribute
 
@@ -323,20 +500,52 @@ public class SchemaDetector {
   }
 
   public static List<ObjectClass> extractTables(List<Event> events) {
+    return extractTables(events, null);
+  }
+
+  /**
+   * Detect the tables of the event log
+   * @param events
+   * @param statistics relations collected while importing the events, the events are counted again if null
+   * @return
+   */
+  public static List<ObjectClass> extractTables(List<Event> events, RelationStatistics statistics) {
     System.out.print("Reading tables... ");
-    List<ObjectClass> objectClasses = new ArrayList<>();
+    A2AMapping mapping = statistics != null ? generateA2AMapping(statistics) : generateA2AMapping(events);
+    List<ObjectClass> objectClasses = detectTables(mapping);
+    SchemaDetector.populateColumns(objectClasses, events);
 
-    A2AMapping mapping = generateA2AMapping(events);
+    System.out.println("done.\nDetected " + objectClasses.size() + " tables\n");
+    printTables(objectClasses);
 
+    return objectClasses;
+  }
+
+  // Detect and merge the tables of the mapping without populating their columns
+  static List<ObjectClass> detectTables(A2AMapping mapping) {
+    return detectTables(mapping, new HashMap<>());
+  }
+
+  // Detect and merge the tables of the mapping, the attribute clusters of the given activities are reused
+  static List<ObjectClass> detectTables(A2AMapping mapping, Map<String, List<List<String>>> clusters) {
+    List<ObjectClass> objectClasses = new ArrayList<>();
     detectIsolatedActivityIsolatedAttributeRelations(mapping, objectClasses);
-    detectIsolatedActivityNonIsolatedAttributeRelations(mapping, objectClasses);
+    detectIsolatedActivityNonIsolatedAttributeRelations(mapping, objectClasses, clusters);
     detectNonIsolatedActivityIsolatedAttributeRelations(mapping, objectClasses);
     detectNonIsolatedActivityNonIsolatedAttributeRelations(mapping, objectClasses);
+    return SchemaDetector.mergeTables(objectClasses);
+  }
 
-    objectClasses = SchemaDetector.mergeTables(objectClasses);
+  // Populate the columns of a previously detected schema, e.g. restored from a snapshot
+  public static List<ObjectClass> restoreTables(List<ObjectClass> objectClasses, List<Event> events) {
+    System.out.print("Restoring tables... ");
     SchemaDetector.populateColumns(objectClasses, events);
+    System.out.println("done.\nRestored " + objectClasses.size() + " tables\n");
+    printTables(objectClasses);
+    return objectClasses;
+  }
 
-    System.out.println("done.\nDetected " + objectClasses.size() + " tables\n");
+  static void printTables(List<ObjectClass> objectClasses) {
     for (ObjectClass objectClass : objectClasses) {
       System.out.println(objectClass.getName() + ": ");
       for (String columnName : objectClass.getAttributeNames()) {
@@ -344,7 +553,5 @@ public class SchemaDetector {
       }
       System.out.println("");
     }
-
-    return objectClasses;
   }
 }
@@ -0,0 +1,347 @@
+package modules;
+
+import helpers.ConcurrencyHelper;
+import models.*;
+
+import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.function.BiPredicate;
+import java.util.stream.Collectors;
+
+// Schema detection on a sample of the events for very large logs. The sample is stratified by activity, so rare
+// activities keep their events, and the detected object classes are validated in one parallel pass over all events.
+// The detection depends on which activities share an attribute, on the relation counts and, for the attributes of
+// isolated activities, on the inclusion of their events. The pass counts the relations and checks for each pair of
+// attributes whose events include each other in the sample that no event has the included attribute without the
+// including one. The tables are then detected again on these relations and replace the sampled tables if any
+// attribute is in another table, which is reported. Attributes missing in the sample for an activity require a
+// second pass.
+public class SchemaSampler {
+
+  // Activities with fewer events are sampled completely
+  private static final int MINIMUM_EVENTS_PER_ACTIVITY = 100;
+  // Number of chunks per thread when scanning all events
+  private static final int CHUNKS_PER_THREAD = 4;
+
+  public static List<ObjectClass> extractTables(List<Event> events, int sampleSize) {
+    return extractTables(events, sampleSize, ConcurrencyHelper.defaultParallelism());
+  }
+
+  /**
+   * Detect the tables on a sample of the events and validate them on all events
+   * @param events
+   * @param sampleSize approximate number of sampled events
+   * @param threads
+   * @return
+   */
+  public static List<ObjectClass> extractTables(List<Event> events, int sampleSize, int threads) {
+    List<Event> sample = sample(events, sampleSize);
+    System.out.print("Reading tables from a sample of " + sample.size() + " events... ");
+    A2AMapping mapping = SchemaDetector.generateA2AMapping(sample, threads);
+    // The detection removes the attributes from the mapping
+    Map<Integer, EventIdSet> sampleEventIds = new HashMap<>();
+    for (Attribute attribute : mapping.getAttributes().values()) {
+      sampleEventIds.put(attribute.getCode(), attribute.getEventIds());
+    }
+    List<ObjectClass> objectClasses = SchemaDetector.detectTables(mapping);
+    System.out.println("done.\nDetected " + objectClasses.size() + " tables\n");
+
+    System.out.print("Validating tables on all events... ");
+    SampleValidation validation = validate(objectClasses, mapping.getActivityAttributeRelations(), sampleEventIds, events, threads);
+    if (!validation.getDifferingAttributes().isEmpty()) {
+      objectClasses = validation.getObjectClasses();
+    }
+    SchemaDetector.populateColumns(objectClasses, events, threads);
+    System.out.println("done.");
+    if (validation.isConfirmed()) {
+      System.out.println("All attributes confirmed\n");
+    } else {
+      if (!validation.getUnassignedAttributes().isEmpty()) {
+        System.out.println("Attributes missing in the sample: " + String.join(", ", validation.getUnassignedAttributes()));
+      }
+      if (!validation.getUnconfirmedAttributes().isEmpty()) {
+        System.out.println("Attributes with relations missing in the sample: " + String.join(", ", validation.getUnconfirmedAttributes()));
+      }
+      if (!validation.getDifferingAttributes().isEmpty()) {
+        System.out.println("Attributes in other tables on all events: " + String.join(", ", validation.getDifferingAttributes()));
+        System.out.println("Continuing with the " + objectClasses.size() + " tables detected on all events");
+      }
+      System.out.println();
+    }
+    SchemaDetector.printTables(objectClasses);
+
+    return objectClasses;
+  }
+
+  /**
+   * Select evenly spaced events of each activity in proportion to its number of events, keeping the order of the events
+   * @param events
+   * @param sampleSize
+   * @return
+   */
+  public static List<Event> sample(List<Event> events, int sampleSize) {
+    if (sampleSize >= events.size()) {
+      return events;
+    }
+    int[] activityCounts = new int[EventStore.ACTIVITIES.size()];
+    for (Event event : events) {
+      activityCounts[event.getActivityCode()]++;
+    }
+    int[] sampleCounts = new int[activityCounts.length];
+    for (int activityCode = 0; activityCode < activityCounts.length; activityCode++) {
+      long proportionalCount = (long) activityCounts[activityCode] * sampleSize / events.size();
+      sampleCounts[activityCode] = (int) Math.max(Math.min(activityCounts[activityCode], MINIMUM_EVENTS_PER_ACTIVITY), proportionalCount);
+    }
+
+    List<Event> sample = new ArrayList<>();
+    int[] ranks = new int[activityCounts.length];
+    for (Event event : events) {
+      int activityCode = event.getActivityCode();
+      long rank = ranks[activityCode]++;
+      // Exactly sampleCount of the activityCount ranks pass this test
+      if (rank * sampleCounts[activityCode] % activityCounts[activityCode] < sampleCounts[activityCode]) {
+        sample.add(event);
+      }
+    }
+    return sample;
+  }
+
+  /**
+   * Check the object classes detected on a sample against the relations of all events
+   * @param objectClasses
+   * @param sampleRelations relations counted on the sample
+   * @param sampleEventIds event ids of each attribute code in the sample
+   * @param events
+   * @param threads
+   * @return
+   */
+  public static SampleValidation validate(List<ObjectClass> objectClasses, RelationMatrix sampleRelations, Map<Integer, EventIdSet> sampleEventIds, List<Event> events, int threads) {
+    // Pairs of attributes of isolated activities whose events include each other in the sample, as candidates for the
+    // inclusion on all events
+    int[] sampleActivityCounts = activityCounts(sampleRelations);
+    List<List<int[]>> samplePairs = new ArrayList<>();
+    for (int activityCode = 0; activityCode < sampleRelations.getActivityBound(); activityCode++) {
+      int[] attributeCodes = sampleRelations.getAttributeCodes(activityCode);
+      samplePairs.add(isIsolated(attributeCodes, sampleActivityCounts)
+          ? includedPairs(attributeCodes, (superSet, subset) -> sampleEventIds.getOrDefault(superSet, new EventIdSet()).containsAll(sampleEventIds.getOrDefault(subset, new EventIdSet())))
+          : Collections.emptyList());
+    }
+    RelationScan scan = scan(events, samplePairs, true, threads);
+    RelationMatrix relations = scan.relations;
+    int[] activityCounts = activityCounts(relations);
+
+    // Inclusions of the attributes of isolated activities on all events. Activities with attributes missing in the
+    // sample are scanned again with all pairs of their attributes.
+    Map<Integer, Set<Long>> inclusions = new HashMap<>();
+    List<List<int[]>> missingPairs = new ArrayList<>();
+    Set<Integer> rescannedActivities = new HashSet<>();
+    for (int activityCode = 0; activityCode < relations.getActivityBound(); activityCode++) {
+      int[] attributeCodes = relations.getAttributeCodes(activityCode);
+      List<int[]> pairs = Collections.emptyList();
+      if (isIsolated(attributeCodes, activityCounts)) {
+        if (Arrays.equals(attributeCodes, sampleRelations.getAttributeCodes(activityCode))) {
+          inclusions.put(activityCode, confirmedPairs(samplePairs.get(activityCode), scan.violations.get(activityCode)));
+        } else {
+          pairs = includedPairs(attributeCodes, (superSet, subset) -> true);
+          rescannedActivities.add(activityCode);
+        }
+      }
+      missingPairs.add(pairs);
+    }
+    if (!rescannedActivities.isEmpty()) {
+      RelationScan missingScan = scan(events, missingPairs, false, threads);
+      for (int activityCode : rescannedActivities) {
+        inclusions.put(activityCode, confirmedPairs(missingPairs.get(activityCode), missingScan.violations.get(activityCode)));
+      }
+    }
+
+    // Detect the tables again on the relation counts of all events, with the clusters of the confirmed inclusions
+    Map<String, Activity> activities = new HashMap<>();
+    for (int activityCode = 0; activityCode < scan.activities.length; activityCode++) {
+      if (scan.activities[activityCode]) {
+        String activityName = EventStore.ACTIVITIES.decode(activityCode);
+        activities.put(activityName, new Activity(activityName));
+      }
+    }
+    Map<String, Attribute> attributes = new HashMap<>();
+    for (int attributeCode = 0; attributeCode < activityCounts.length; attributeCode++) {
+      if (activityCounts[attributeCode] > 0) {
+        String attributeName = EventStore.ATTRIBUTES.decode(attributeCode);
+        attributes.put(attributeName, new Attribute(attributeName));
+      }
+    }
+    A2AMapping mapping = new A2AMapping(relations);
+    SchemaDetector.addRelations(mapping, activities, attributes);
+    Map<String, List<List<String>>> clusters = new HashMap<>();
+    for (Activity activity : mapping.getActivities().values()) {
+      Set<Long> activityInclusions = inclusions.get(activity.getCode());
+      if (activityInclusions != null || activity.getAttributeRelations().isEmpty()) {
+        clusters.put(activity.getName(), SchemaDetector.clusterAttributes(activity.getAttributeRelations(),
+            (superSet, subset) -> activityInclusions.contains(pair(superSet.getCode(), subset.getCode()))));
+      }
+    }
+    List<ObjectClass> detectedObjectClasses = SchemaDetector.detectTables(mapping, clusters);
+
+    Set<String> assignedAttributes = new HashSet<>();
+    for (ObjectClass objectClass : objectClasses) {
+      assignedAttributes.addAll(objectClass.getAttributeNames());
+    }
+    Set<String> unassignedAttributes = new TreeSet<>();
+    Set<String> unconfirmedAttributes = new TreeSet<>();
+    for (int activityCode = 0; activityCode < relations.getActivityBound(); activityCode++) {
+      for (int attributeCode : relations.getAttributeCodes(activityCode)) {
+        String attributeName = EventStore.ATTRIBUTES.decode(attributeCode);
+        if (!assignedAttributes.contains(attributeName)) {
+          unassignedAttributes.add(attributeName);
+        } else if (sampleRelations.get(activityCode, attributeCode) == 0) {
+          unconfirmedAttributes.add(attributeName);
+        }
+      }
+    }
+
+    Map<String, Set<Set<String>>> sampleTables = tablesByAttribute(objectClasses);
+    Map<String, Set<Set<String>>> detectedTables = tablesByAttribute(detectedObjectClasses);
+    Set<String> tableAttributes = new HashSet<>(sampleTables.keySet());
+    tableAttributes.addAll(detectedTables.keySet());
+    Set<String> differingAttributes = new TreeSet<>();
+    for (String attributeName : tableAttributes) {
+      if (!Objects.equals(sampleTables.get(attributeName), detectedTables.get(attributeName))) {
+        differingAttributes.add(attributeName);
+      }
+    }
+    return new SampleValidation(events.size(), new ArrayList<>(unassignedAttributes), new ArrayList<>(unconfirmedAttributes),
+        new ArrayList<>(differingAttributes), detectedObjectClasses);
+  }
+
+  // Number of activities related to each attribute code
+  private static int[] activityCounts(RelationMatrix relations) {
+    int[] activityCounts = new int[EventStore.ATTRIBUTES.size()];
+    for (int activityCode = 0; activityCode < relations.getActivityBound(); activityCode++) {
+      for (int attributeCode : relations.getAttributeCodes(activityCode)) {
+        activityCounts[attributeCode]++;
+      }
+    }
+    return activityCounts;
+  }
+
+  // Whether all attributes of the activity are only related to this activity, as required for clustering them
+  private static boolean isIsolated(int[] attributeCodes, int[] activityCounts) {
+    for (int attributeCode : attributeCodes) {
+      if (activityCounts[attributeCode] != 1) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  // Ordered pairs of different attributes (including, included) that pass the test
+  private static List<int[]> includedPairs(int[] attributeCodes, BiPredicate<Integer, Integer> includes) {
+    List<int[]> pairs = new ArrayList<>();
+    for (int superSet : attributeCodes) {
+      for (int subset : attributeCodes) {
+        if (superSet != subset && includes.test(superSet, subset)) {
+          pairs.add(new int[]{superSet, subset});
+        }
+      }
+    }
+    return pairs;
+  }
+
+  private static Set<Long> confirmedPairs(List<int[]> pairs, boolean[] violations) {
+    Set<Long> confirmedPairs = new HashSet<>();
+    for (int i = 0; i < pairs.size(); i++) {
+      if (!violations[i]) {
+        confirmedPairs.add(pair(pairs.get(i)[0], pairs.get(i)[1]));
+      }
+    }
+    return confirmedPairs;
+  }
+
+  private static long pair(int superSet, int subset) {
+    return ((long) superSet << 32) | (subset & 0xFFFFFFFFL);
+  }
+
+  /**
+   * Count the relations of all events in parallel chunks and find the pairs of each activity that are violated by an
+   * event having the included attribute without the including one
+   * @param events
+   * @param pairs pairs of attribute codes (including, included) by activity code
+   * @param countRelations
+   * @param threads
+   * @return
+   */
+  private static RelationScan scan(List<Event> events, List<List<int[]>> pairs, boolean countRelations, int threads) {
+    int attributeBound = EventStore.ATTRIBUTES.size();
+    int activityBound = EventStore.ACTIVITIES.size();
+    List<Callable<RelationScan>> tasks = ConcurrencyHelper.split(events, threads * CHUNKS_PER_THREAD).stream()
+        .map(chunk -> (Callable<RelationScan>) () -> {
+          RelationScan chunkScan = new RelationScan(attributeBound, activityBound, pairs);
+          for (Event event : chunk) {
+            int activityCode = event.getActivityCode();
+            chunkScan.activities[activityCode] = true;
+            if (countRelations) {
+              for (int i = 0; i < event.getAttributeCount(); i++) {
+                chunkScan.relations.increment(activityCode, event.getAttributeCode(i));
+              }
+            }
+            if (activityCode >= pairs.size()) {
+              continue;
+            }
+            List<int[]> activityPairs = pairs.get(activityCode);
+            boolean[] violations = chunkScan.violations.get(activityCode);
+            for (int i = 0; i < activityPairs.size(); i++) {
+              if (!violations[i] && event.findValueCode(activityPairs.get(i)[1]) != StringDictionary.UNKNOWN
+                  && event.findValueCode(activityPairs.get(i)[0]) == StringDictionary.UNKNOWN) {
+                violations[i] = true;
+              }
+            }
+          }
+          return chunkScan;
+        })
+        .collect(Collectors.toList());
+
+    RelationScan scan = new RelationScan(attributeBound, activityBound, pairs);
+    for (RelationScan chunkScan : ConcurrencyHelper.callAll(tasks, threads)) {
+      scan.relations.merge(chunkScan.relations, null);
+      for (int activityCode = 0; activityCode < activityBound; activityCode++) {
+        scan.activities[activityCode] |= chunkScan.activities[activityCode];
+      }
+      for (int activityCode = 0; activityCode < pairs.size(); activityCode++) {
+        boolean[] violations = scan.violations.get(activityCode);
+        for (int i = 0; i < violations.length; i++) {
+          violations[i] |= chunkScan.violations.get(activityCode)[i];
+        }
+      }
+    }
+    return scan;
+  }
+
+  // Attribute names of the object classes containing each attribute
+  private static Map<String, Set<Set<String>>> tablesByAttribute(List<ObjectClass> objectClasses) {
+    Map<String, Set<Set<String>>> tables = new HashMap<>();
+    for (ObjectClass objectClass : objectClasses) {
+      Set<String> attributeNames = new HashSet<>(objectClass.getAttributeNames());
+      for (String attributeName : attributeNames) {
+        tables.computeIfAbsent(attributeName, name -> new HashSet<>()).add(attributeNames);
+      }
+    }
+    return tables;
+  }
+
+  private static class RelationScan {
+    private final RelationMatrix relations;
+    // Activity codes occurring in the events
+    private final boolean[] activities;
+    // Per activity code and pair whether an event has the included attribute without the including one
+    private final List<boolean[]> violations;
+
+    private RelationScan(int attributeBound, int activityBound, List<List<int[]>> pairs) {
+      this.relations = new RelationMatrix(attributeBound);
+      this.activities = new boolean[activityBound];
+      this.violations = new ArrayList<>();
+      for (List<int[]> activityPairs : pairs) {
+        this.violations.add(new boolean[activityPairs.size()]);
+      }
+    }
+  }
+}
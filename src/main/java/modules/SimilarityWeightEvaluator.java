@@ -1,17 +1,33 @@
 package modules;
 
+import helpers.ConcurrencyHelper;
 import models.Column;
 import models.Event;
+import models.HyperLogLog;
+import models.ObjectClass;
 
 import java.util.*;
-import java.util.stream.Collectors;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
 
 public class SimilarityWeightEvaluator {
 
-  private static int countUniqueValues(List<String> values) {
-    Set<String> uniqueValues = new HashSet();
-    values.forEach(value -> uniqueValues.add(value));
-    return uniqueValues.size();
+  // Number of values sketched per task, larger columns are sketched in parallel parts
+  private static final int SKETCH_CHUNK_SIZE = 1 << 18;
+
+  private static int countUniqueValues(Column column) {
+    int[] values = new int[column.size()];
+    for (int i = 0; i < values.length; i++) {
+      values[i] = column.getValueCode(i);
+    }
+    Arrays.sort(values);
+    int uniqueValues = 0;
+    for (int i = 0; i < values.length; i++) {
+      if (i == 0 || values[i] != values[i - 1]) {
+        uniqueValues++;
+      }
+    }
+    return uniqueValues;
   }
 
   // Interpretation of the given ratio
@@ -20,6 +36,34 @@ public class SimilarityWeightEvaluator {
     return Math.exp(-gradient * Math.pow((ratio - 0.5), 2));
   }
 
+  /**
+   * Determine the similarity weights of the columns of an object class and its highest similarity score
+   * @param objectClass
+   * @param relativeError bound of the standard error when estimating the distinct values, 0 to count them exactly
+   * @return
+   */
+  public static double determineSimilarityWeights(ObjectClass objectClass, double relativeError) {
+    return determineSimilarityWeights(objectClass, relativeError, null);
+  }
+
+  /**
+   * Determine the similarity weights of the columns of an object class and its highest similarity score
+   * @param objectClass
+   * @param relativeError bound of the standard error when estimating the distinct values, 0 to count them exactly
+   * @param pool executor for the sketch tasks of the estimation, null to sketch on the calling thread
+   * @return
+   */
+  public static double determineSimilarityWeights(ObjectClass objectClass, double relativeError, ExecutorService pool) {
+    if (relativeError > 0 && pool != null) {
+      estimateSimilarityWeights(Collections.singletonList(objectClass), relativeError, pool);
+    } else if (relativeError > 0) {
+      estimateSimilarityWeights(Collections.singletonList(objectClass), relativeError, 1);
+    } else {
+      objectClass.setHighestSimilarityScore(determineSimilarityWeights(new ArrayList<>(objectClass.getAttributes().values()), objectClass.getRelevantEvents()));
+    }
+    return objectClass.getHighestSimilarityScore();
+  }
+
   public static double determineSimilarityWeights(List<Column> columns, List<Event> events) {
     List<Double> weights = new ArrayList<>();
     for (Column column : columns) {
@@ -39,21 +83,16 @@ public class SimilarityWeightEvaluator {
   }
 
   public static double getSimilarityWeight(Column column, int eventSize) {
-    List<String> values = column
-        .getEntries()
-        .stream()
-        .map(entry -> entry.getValue())
-        .filter(value -> value != null)
-        .collect(Collectors.toList());
-
-    if (values.isEmpty()) {
+    if (column.size() == 0) {
       return 0;
     }
 
-    double distinctValues = countUniqueValues(values);
+    return similarityWeight(column.size(), countUniqueValues(column), eventSize);
+  }
 
-    double completenessFactor = (double) values.size() / (double) eventSize;
-    double distinctFactor = distinctValues/ (double) values.size();
+  private static double similarityWeight(int valueCount, double distinctValues, int eventSize) {
+    double completenessFactor = (double) valueCount / (double) eventSize;
+    double distinctFactor = distinctValues / (double) valueCount;
     double distributionFactor = distributionValue(distinctFactor);
 
     double result = completenessFactor * distributionFactor;
@@ -61,4 +100,81 @@ public class SimilarityWeightEvaluator {
     return result;
   }
 
+  /**
+   * Determine the similarity weights of all object classes with estimated numbers of distinct values, sketched in a
+   * single pass over the values of each column, in parallel across columns and object classes
+   * @param objectClasses
+   * @param relativeError bound of the standard error of the estimated numbers of distinct values
+   * @param threads
+   */
+  public static void estimateSimilarityWeights(List<ObjectClass> objectClasses, double relativeError, int threads) {
+    List<Integer> taskCounts = new ArrayList<>();
+    List<Callable<HyperLogLog>> tasks = sketchTasks(objectClasses, relativeError, taskCounts);
+    mergeSketches(objectClasses, taskCounts, ConcurrencyHelper.callAll(tasks, threads));
+  }
+
+  /**
+   * Determine the similarity weights of all object classes with estimated numbers of distinct values, sketched on the
+   * given executor. The calling thread waits for the sketches, so it must not be a thread of the executor.
+   * @param objectClasses
+   * @param relativeError bound of the standard error of the estimated numbers of distinct values
+   * @param pool
+   */
+  public static void estimateSimilarityWeights(List<ObjectClass> objectClasses, double relativeError, ExecutorService pool) {
+    List<Integer> taskCounts = new ArrayList<>();
+    List<Callable<HyperLogLog>> tasks = sketchTasks(objectClasses, relativeError, taskCounts);
+    mergeSketches(objectClasses, taskCounts, ConcurrencyHelper.syncAll(ConcurrencyHelper.submitAll(pool, tasks)));
+  }
+
+  // Tasks sketching the chunks of all columns, the number of tasks of each column is added to taskCounts
+  private static List<Callable<HyperLogLog>> sketchTasks(List<ObjectClass> objectClasses, double relativeError, List<Integer> taskCounts) {
+    int precision = HyperLogLog.precisionFor(relativeError);
+    List<Callable<HyperLogLog>> tasks = new ArrayList<>();
+    for (ObjectClass objectClass : objectClasses) {
+      for (Column column : objectClass.getAttributes().values()) {
+        int taskCount = 0;
+        for (int start = 0; start < column.size(); start += SKETCH_CHUNK_SIZE) {
+          int from = start;
+          int to = Math.min(column.size(), start + SKETCH_CHUNK_SIZE);
+          tasks.add(() -> {
+            HyperLogLog sketch = new HyperLogLog(precision);
+            for (int i = from; i < to; i++) {
+              sketch.add(column.getValueCode(i));
+            }
+            return sketch;
+          });
+          taskCount++;
+        }
+        taskCounts.add(taskCount);
+      }
+    }
+    return tasks;
+  }
+
+  // Merge the sketches of each column in the order of the tasks
+  private static void mergeSketches(List<ObjectClass> objectClasses, List<Integer> taskCounts, List<HyperLogLog> sketches) {
+    int taskIndex = 0;
+    int columnIndex = 0;
+    for (ObjectClass objectClass : objectClasses) {
+      int eventSize = objectClass.getRelevantEvents().size();
+      double sum = 0;
+      for (Column column : objectClass.getAttributes().values()) {
+        int taskCount = taskCounts.get(columnIndex++);
+        double weight = 0;
+        if (taskCount > 0) {
+          HyperLogLog sketch = sketches.get(taskIndex);
+          for (int i = 1; i < taskCount; i++) {
+            sketch.merge(sketches.get(taskIndex + i));
+          }
+          // The estimate may exceed the number of values or fall below one value
+          double distinctValues = Math.max(1, Math.min(column.size(), sketch.estimate()));
+          weight = similarityWeight(column.size(), distinctValues, eventSize);
+        }
+        taskIndex += taskCount;
+        column.setSimilarityWeight(weight);
+        sum += weight;
+      }
+      objectClass.setHighestSimilarityScore(sum);
+    }
+  }
 }
@@ -0,0 +1,432 @@
+package modules;
+
+import models.Event;
+import models.EventStore;
+import models.ObjectClass;
+import models.StringDictionary;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+// Binary snapshot of an imported event log and its detected schema, stored next to the CSV-file. The snapshot is keyed
+// by size, modification time and a sampled content hash of the CSV-file as well as the import settings, so a snapshot
+// of an outdated file is never used. Snapshots are read via memory mappings and dictionary codes are remapped on load.
+//
+// Layout (little endian): key, dictionaries (activities, attributes, values), event columns, optional schema section
+// that is appended once the tables were detected.
+public class SnapshotCache {
+
+  private static final int MAGIC = 0x534e4345;
+  private static final int VERSION = 1;
+  private static final int SCHEMA_MARKER = 0x414d4853;
+  private static final String FILE_EXTENSION = ".snapshot";
+  // Files up to this size are hashed completely, larger files are hashed at the head, the tail and evenly spaced blocks
+  private static final long FULL_HASH_LIMIT = 4 * 1024 * 1024;
+  private static final int HASH_BLOCK_SIZE = 64 * 1024;
+  private static final int HASH_BLOCK_COUNT = 32;
+  private static final int WINDOW_SIZE = 64 * 1024 * 1024;
+  private static final int BUFFER_SIZE = 1024 * 1024;
+
+  private final File inputFile;
+  private final File snapshotFile;
+  private final String columnSeparator;
+  private final boolean debuggingMode;
+  private final boolean literalSeparator;
+  private List<ObjectClass> objectClasses;
+
+  /**
+   * @param inputFilePath
+   * @param columnSeparator
+   * @param debuggingMode
+   * @param literalSeparator whether the separator was matched literally (memory-mapped import) or as regular expression
+   */
+  public SnapshotCache(String inputFilePath, String columnSeparator, boolean debuggingMode, boolean literalSeparator) {
+    this.inputFile = new File(inputFilePath);
+    this.snapshotFile = new File(inputFilePath + FILE_EXTENSION);
+    this.columnSeparator = columnSeparator;
+    this.debuggingMode = debuggingMode;
+    this.literalSeparator = literalSeparator;
+  }
+
+  public File getSnapshotFile() {
+    return snapshotFile;
+  }
+
+  // Schema of the last loaded snapshot, null if the snapshot did not contain one
+  public List<ObjectClass> getObjectClasses() {
+    return objectClasses;
+  }
+
+  /**
+   * Load the events of a snapshot matching the current CSV-file and settings
+   * @return events or null if there is no valid snapshot
+   */
+  public List<Event> loadEvents() {
+    this.objectClasses = null;
+    if (!this.snapshotFile.isFile()) {
+      return null;
+    }
+    System.out.print("Loading snapshot... ");
+    try (RandomAccessFile file = new RandomAccessFile(this.snapshotFile, "r"); FileChannel channel = file.getChannel()) {
+      SnapshotInput input = new SnapshotInput(channel);
+      if (input.readInt() != MAGIC || input.readInt() != VERSION || !this.readKey(input)) {
+        System.out.println("outdated, re-importing CSV-file.");
+        return null;
+      }
+
+      int[] activityMapping = readDictionary(input, EventStore.ACTIVITIES);
+      int[] attributeMapping = readDictionary(input, EventStore.ATTRIBUTES);
+      int[] valueMapping = readDictionary(input, EventStore.VALUES);
+
+      int eventCount = input.readInt();
+      int attributeCount = input.readInt();
+      int[] ids = input.readInts(new int[eventCount]);
+      int[] caseIds = remap(input.readInts(new int[eventCount]), valueMapping);
+      long[] timestamps = input.readLongs(new long[eventCount]);
+      int[] activities = remap(input.readInts(new int[eventCount]), activityMapping);
+      int[] attributeOffsets = input.readInts(new int[eventCount + 1]);
+      int[] attributeCodes = remap(input.readInts(new int[attributeCount]), attributeMapping);
+      int[] valueCodes = remap(input.readInts(new int[attributeCount]), valueMapping);
+      List<Event> events = EventStore.fromColumns(ids, caseIds, timestamps, activities, attributeOffsets, attributeCodes, valueCodes).getEvents();
+
+      this.objectClasses = readSchema(input);
+      System.out.println("done.\nDetected " + events.size() + " events" + (this.objectClasses != null ? " and " + this.objectClasses.size() + " tables" : "") + "\n");
+      return events;
+    } catch (IOException | RuntimeException e) {
+      // A corrupt or truncated snapshot is replaced by importing the CSV-file again
+      System.out.println("failed (" + e + "), re-importing CSV-file.");
+      this.objectClasses = null;
+      return null;
+    }
+  }
+
+  /**
+   * Write a snapshot of the imported events, replacing any existing snapshot
+   * @param events all events of a single event store in store order
+   * @throws IOException
+   */
+  public void storeEvents(List<Event> events) throws IOException {
+    EventStore store = events.isEmpty() ? new EventStore() : events.get(0).getStore();
+    if (store.size() != events.size()) {
+      throw new IllegalArgumentException("The events have to form a complete event store");
+    }
+    File temporaryFile = new File(this.snapshotFile.getPath() + ".tmp");
+    try (FileChannel channel = FileChannel.open(temporaryFile.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+      SnapshotOutput output = new SnapshotOutput(channel);
+      output.writeInt(MAGIC);
+      output.writeInt(VERSION);
+      this.writeKey(output);
+      writeDictionary(output, EventStore.ACTIVITIES);
+      writeDictionary(output, EventStore.ATTRIBUTES);
+      writeDictionary(output, EventStore.VALUES);
+
+      int eventCount = store.size();
+      int attributeCount = store.getAttributeOffsetColumn()[eventCount];
+      output.writeInt(eventCount);
+      output.writeInt(attributeCount);
+      output.writeInts(store.getIdColumn(), eventCount);
+      output.writeInts(store.getCaseIdColumn(), eventCount);
+      output.writeLongs(store.getTimestampColumn(), eventCount);
+      output.writeInts(store.getActivityColumn(), eventCount);
+      output.writeInts(store.getAttributeOffsetColumn(), eventCount + 1);
+      output.writeInts(store.getAttributeCodeColumn(), attributeCount);
+      output.writeInts(store.getValueCodeColumn(), attributeCount);
+      output.flush();
+    }
+    Files.move(temporaryFile.toPath(), this.snapshotFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+  }
+
+  /**
+   * Append the detected schema to the snapshot written by storeEvents
+   * @param objectClasses
+   * @throws IOException
+   */
+  public void storeSchema(List<ObjectClass> objectClasses) throws IOException {
+    try (FileChannel channel = FileChannel.open(this.snapshotFile.toPath(), StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+      List<byte[]> strings = new ArrayList<>();
+      int length = 4;
+      for (ObjectClass objectClass : objectClasses) {
+        byte[] name = objectClass.getName().getBytes(StandardCharsets.UTF_8);
+        strings.add(name);
+        length += 12 + name.length;
+        for (String attributeName : objectClass.getAttributeNames()) {
+          byte[] bytes = attributeName.getBytes(StandardCharsets.UTF_8);
+          strings.add(bytes);
+          length += 4 + bytes.length;
+        }
+      }
+
+      // The section length allows to ignore a partially written schema
+      SnapshotOutput output = new SnapshotOutput(channel);
+      output.writeInt(SCHEMA_MARKER);
+      output.writeInt(length);
+      output.writeInt(objectClasses.size());
+      int stringIndex = 0;
+      for (ObjectClass objectClass : objectClasses) {
+        output.writeInt(objectClass.getId());
+        output.writeBytes(strings.get(stringIndex++));
+        output.writeInt(objectClass.getAttributeNames().size());
+        for (int i = 0; i < objectClass.getAttributeNames().size(); i++) {
+          output.writeBytes(strings.get(stringIndex++));
+        }
+      }
+      output.flush();
+    }
+  }
+
+  private void writeKey(SnapshotOutput output) throws IOException {
+    output.writeLong(this.inputFile.length());
+    output.writeLong(this.inputFile.lastModified());
+    output.writeBytes(this.fingerprint());
+    output.writeBytes(this.columnSeparator.getBytes(StandardCharsets.UTF_8));
+    output.writeInt((this.debuggingMode ? 1 : 0) | (this.literalSeparator ? 2 : 0));
+  }
+
+  private boolean readKey(SnapshotInput input) throws IOException {
+    return input.readLong() == this.inputFile.length()
+        && input.readLong() == this.inputFile.lastModified()
+        && Arrays.equals(input.readBytes(), this.fingerprint())
+        && Arrays.equals(input.readBytes(), this.columnSeparator.getBytes(StandardCharsets.UTF_8))
+        && input.readInt() == ((this.debuggingMode ? 1 : 0) | (this.literalSeparator ? 2 : 0));
+  }
+
+  // SHA-256 of the CSV-file, for large files of a sample of its blocks
+  private byte[] fingerprint() throws IOException {
+    MessageDigest digest;
+    try {
+      digest = MessageDigest.getInstance("SHA-256");
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
+    try (RandomAccessFile file = new RandomAccessFile(this.inputFile, "r"); FileChannel channel = file.getChannel()) {
+      long size = channel.size();
+      ByteBuffer buffer = ByteBuffer.allocate(HASH_BLOCK_SIZE);
+      if (size <= FULL_HASH_LIMIT) {
+        hashRange(channel, 0, size, buffer, digest);
+      } else {
+        for (int i = 0; i < HASH_BLOCK_COUNT; i++) {
+          hashRange(channel, (size - HASH_BLOCK_SIZE) * i / (HASH_BLOCK_COUNT - 1), HASH_BLOCK_SIZE, buffer, digest);
+        }
+      }
+    }
+    return digest.digest();
+  }
+
+  private static void hashRange(FileChannel channel, long start, long length, ByteBuffer buffer, MessageDigest digest) throws IOException {
+    long position = start;
+    while (position < start + length) {
+      buffer.clear();
+      buffer.limit((int) Math.min(buffer.capacity(), start + length - position));
+      int read = channel.read(buffer, position);
+      if (read < 0) {
+        break;
+      }
+      digest.update(buffer.array(), 0, read);
+      position += read;
+    }
+  }
+
+  private static void writeDictionary(SnapshotOutput output, StringDictionary dictionary) throws IOException {
+    int size = dictionary.size();
+    output.writeInt(size);
+    for (int code = 0; code < size; code++) {
+      output.writeBytes(dictionary.decode(code).getBytes(StandardCharsets.UTF_8));
+    }
+  }
+
+  // Mapping from the codes stored in the snapshot to the codes of the shared dictionary
+  private static int[] readDictionary(SnapshotInput input, StringDictionary dictionary) throws IOException {
+    int[] mapping = new int[input.readInt()];
+    for (int code = 0; code < mapping.length; code++) {
+      mapping[code] = dictionary.encode(new String(input.readBytes(), StandardCharsets.UTF_8));
+    }
+    return mapping;
+  }
+
+  private static int[] remap(int[] codes, int[] mapping) {
+    boolean identity = true;
+    for (int code = 0; code < mapping.length && identity; code++) {
+      identity = mapping[code] == code;
+    }
+    if (!identity) {
+      for (int i = 0; i < codes.length; i++) {
+        codes[i] = mapping[codes[i]];
+      }
+    }
+    return codes;
+  }
+
+  private static List<ObjectClass> readSchema(SnapshotInput input) throws IOException {
+    if (input.remaining() < 8 || input.readInt() != SCHEMA_MARKER || input.readInt() > input.remaining()) {
+      return null;
+    }
+    int classCount = input.readInt();
+    List<ObjectClass> objectClasses = new ArrayList<>(classCount);
+    for (int i = 0; i < classCount; i++) {
+      int id = input.readInt();
+      String name = new String(input.readBytes(), StandardCharsets.UTF_8);
+      int attributeCount = input.readInt();
+      List<String> attributeNames = new ArrayList<>(attributeCount);
+      for (int j = 0; j < attributeCount; j++) {
+        attributeNames.add(new String(input.readBytes(), StandardCharsets.UTF_8));
+      }
+      objectClasses.add(new ObjectClass(id, name, attributeNames));
+    }
+    return objectClasses;
+  }
+
+  // Sequential reader over consecutive memory-mapped windows of the snapshot
+  private static class SnapshotInput {
+    private final FileChannel channel;
+    private final long size;
+    private ByteBuffer window;
+    private long windowStart;
+    private long position;
+
+    SnapshotInput(FileChannel channel) throws IOException {
+      this.channel = channel;
+      this.size = channel.size();
+      this.window = ByteBuffer.allocate(0);
+      this.windowStart = 0;
+      this.position = 0;
+    }
+
+    long remaining() {
+      return this.size - this.position;
+    }
+
+    // Window positioned at the current position that contains at least the given number of bytes
+    private ByteBuffer require(int bytes) throws IOException {
+      if (bytes > this.remaining()) {
+        throw new IOException("Unexpected end of snapshot");
+      }
+      if (this.position < this.windowStart || this.position + bytes > this.windowStart + this.window.limit()) {
+        this.windowStart = this.position;
+        int length = (int) Math.min(Math.max(WINDOW_SIZE, bytes), this.size - this.position);
+        this.window = this.channel.map(FileChannel.MapMode.READ_ONLY, this.windowStart, length).order(ByteOrder.LITTLE_ENDIAN);
+      }
+      this.window.position((int) (this.position - this.windowStart));
+      this.position += bytes;
+      return this.window;
+    }
+
+    int readInt() throws IOException {
+      return this.require(4).getInt();
+    }
+
+    long readLong() throws IOException {
+      return this.require(8).getLong();
+    }
+
+    byte[] readBytes() throws IOException {
+      int length = this.readInt();
+      if (length < 0) {
+        throw new IOException("Invalid length in snapshot");
+      }
+      byte[] bytes = new byte[length];
+      this.require(length).get(bytes);
+      return bytes;
+    }
+
+    int[] readInts(int[] target) throws IOException {
+      int offset = 0;
+      while (offset < target.length) {
+        int count = Math.min(target.length - offset, WINDOW_SIZE / 4);
+        this.require(count * 4).asIntBuffer().get(target, offset, count);
+        offset += count;
+      }
+      return target;
+    }
+
+    long[] readLongs(long[] target) throws IOException {
+      int offset = 0;
+      while (offset < target.length) {
+        int count = Math.min(target.length - offset, WINDOW_SIZE / 8);
+        this.require(count * 8).asLongBuffer().get(target, offset, count);
+        offset += count;
+      }
+      return target;
+    }
+  }
+
+  // Buffered writer, arrays are copied in bulk
+  private static class SnapshotOutput {
+    private final FileChannel channel;
+    private final ByteBuffer buffer;
+
+    SnapshotOutput(FileChannel channel) {
+      this.channel = channel;
+      this.buffer = ByteBuffer.allocate(BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    private void ensureSpace(int bytes) throws IOException {
+      if (this.buffer.remaining() < bytes) {
+        this.flush();
+      }
+    }
+
+    void flush() throws IOException {
+      this.buffer.flip();
+      while (this.buffer.hasRemaining()) {
+        this.channel.write(this.buffer);
+      }
+      this.buffer.clear();
+    }
+
+    void writeInt(int value) throws IOException {
+      this.ensureSpace(4);
+      this.buffer.putInt(value);
+    }
+
+    void writeLong(long value) throws IOException {
+      this.ensureSpace(8);
+      this.buffer.putLong(value);
+    }
+
+    void writeBytes(byte[] bytes) throws IOException {
+      this.writeInt(bytes.length);
+      int offset = 0;
+      while (offset < bytes.length) {
+        this.ensureSpace(1);
+        int count = Math.min(bytes.length - offset, this.buffer.remaining());
+        this.buffer.put(bytes, offset, count);
+        offset += count;
+      }
+    }
+
+    void writeInts(int[] values, int length) throws IOException {
+      int offset = 0;
+      while (offset < length) {
+        this.ensureSpace(4);
+        int count = Math.min(length - offset, this.buffer.remaining() / 4);
+        this.buffer.asIntBuffer().put(values, offset, count);
+        this.buffer.position(this.buffer.position() + count * 4);
+        offset += count;
+      }
+    }
+
+    void writeLongs(long[] values, int length) throws IOException {
+      int offset = 0;
+      while (offset < length) {
+        this.ensureSpace(8);
+        int count = Math.min(length - offset, this.buffer.remaining() / 8);
+        this.buffer.asLongBuffer().put(values, offset, count);
+        this.buffer.position(this.buffer.position() + count * 8);
+        offset += count;
+      }
+    }
+  }
+}
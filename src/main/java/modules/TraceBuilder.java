@@ -8,7 +8,18 @@ import java.util.concurrent.ConcurrentLinkedDeque;
 public class TraceBuilder {
 
   public static EventLog buildEventLog(ObjectClass rootObjectClass, List<Event> events) {
+    return buildEventLog(rootObjectClass, events, 0);
+  }
+
+  /**
+   * @param rootObjectClass
+   * @param events
+   * @param inactivityTimeout time after which traces without events are closed, 0 if unlimited
+   * @return
+   */
+  public static EventLog buildEventLog(ObjectClass rootObjectClass, List<Event> events, long inactivityTimeout) {
     EventLog eventLog = new EventLog(events, rootObjectClass);
+    eventLog.setInactivityTimeout(inactivityTimeout);
     eventLog.estimate();
     eventLog.sortEvents();
     return eventLog;
@@ -51,7 +51,7 @@ public class XESLogGenerator {
       List<Event> events = trace.getEvents()
               .stream()
               .distinct()
-              .sorted(Comparator.comparing(Event::getTimestamp))
+              .sorted(Comparator.comparingLong(Event::getTimestamp))
               .collect(Collectors.toList());
       for (Event event : events) {
         Element logEvent = new Element("event", nameSpace);
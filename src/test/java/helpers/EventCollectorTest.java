@@ -0,0 +1,36 @@
+package helpers;
+
+import models.Event;
+import models.ObjectClass;
+import org.junit.Test;
+
+import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadPoolExecutor;
+
+import static org.junit.Assert.*;
+
+public class EventCollectorTest {
+
+  @Test
+  public void eventsAreAssignedToAllAccessedClasses() {
+    List<Event> events = new ArrayList();
+    events.add(new Event(0, "0", 0L, "admit", new HashMap() {{ put("collector_subject", "1"); put("collector_admission", "10"); }}));
+    events.add(new Event(1, "0", 1L, "prescribe", new HashMap() {{ put("collector_drug", "x"); put("collector_dose", "1"); }}));
+    events.add(new Event(2, "0", 2L, "transfer", new HashMap() {{ put("collector_admission", "10"); }}));
+    events.add(new Event(3, "0", 3L, "note", new HashMap() {{ put("collector_text", "y"); }}));
+
+    List<ObjectClass> objectClasses = new ArrayList<>();
+    objectClasses.add(new ObjectClass(0, "ObjectClass_0", Arrays.asList("collector_subject", "collector_admission")));
+    objectClasses.add(new ObjectClass(1, "ObjectClass_1", Arrays.asList("collector_admission")));
+    objectClasses.add(new ObjectClass(2, "ObjectClass_2", Arrays.asList("collector_drug", "collector_dose")));
+
+    ThreadPoolExecutor executor = (ThreadPoolExecutor) Executors.newFixedThreadPool(2);
+    EventCollector.createEventChunks(executor, objectClasses, events);
+    executor.shutdown();
+
+    assertEquals(Arrays.asList(events.get(0), events.get(2)), objectClasses.get(0).getRelevantEvents());
+    assertEquals(Arrays.asList(events.get(0), events.get(2)), objectClasses.get(1).getRelevantEvents());
+    assertEquals(Collections.singletonList(events.get(1)), objectClasses.get(2).getRelevantEvents());
+  }
+}
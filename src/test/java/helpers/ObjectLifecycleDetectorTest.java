@@ -0,0 +1,97 @@
+package helpers;
+
+import models.Column;
+import models.Event;
+import models.EventStore;
+import models.ObjectClass;
+import models.ObjectInstance;
+import org.junit.Test;
+
+import java.util.*;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.*;
+
+public class ObjectLifecycleDetectorTest {
+
+  @Test
+  public void indexedDetectionMatchesScan() {
+    Random random = new Random(42);
+    String[] activities = {"lifecycle_create", "lifecycle_update", "lifecycle_review", "lifecycle_close"};
+    List<String> columnNames = Arrays.asList("lifecycle_a", "lifecycle_b", "lifecycle_c", "lifecycle_d");
+    for (int run = 0; run < 20; run++) {
+      // Few values and missing attributes produce ties, similarities below the threshold and instances without similarity
+      List<Event> events = new ArrayList<>();
+      EventStore store = new EventStore();
+      for (int i = 0; i < 300; i++) {
+        Map<String, String> attributes = new HashMap<>();
+        for (String columnName : columnNames) {
+          if (random.nextInt(3) > 0) {
+            attributes.put(columnName, String.valueOf(random.nextInt(2 + run)));
+          }
+        }
+        events.add(store.append(i, "0", (long) i, activities[random.nextInt(activities.length)], attributes));
+      }
+      ObjectClass objectClass = new ObjectClass(run, "ObjectClass_" + run, columnNames);
+      objectClass.setRelevantEvents(events);
+      double highestScore = 0;
+      for (Column column : objectClass.getAttributes().values()) {
+        column.setSimilarityWeight(random.nextInt(4) / 4.0);
+        highestScore += column.getSimilarityWeight();
+      }
+      objectClass.setHighestSimilarityScore(highestScore);
+
+      for (double similarityThreshold : new double[]{0, 0.3, 0.7}) {
+        // Instances are closed after 20 events without activity in every second run
+        long inactivityTimeout = run % 2 == 0 ? 0 : 20;
+        ObjectLifecycleDetector detector = new ObjectLifecycleDetector(objectClass, similarityThreshold, false);
+        detector.setInactivityTimeout(inactivityTimeout);
+        detector.estimate();
+        List<List<Integer>> scannedInstances = eventIds(objectClass.getInstances());
+        String scannedLifecycle = objectClass.getLifecycle();
+        detector = new ObjectLifecycleDetector(objectClass, similarityThreshold, true);
+        detector.setInactivityTimeout(inactivityTimeout);
+        detector.estimate();
+        assertEquals(scannedInstances, eventIds(objectClass.getInstances()));
+        assertEquals(scannedLifecycle, objectClass.getLifecycle());
+      }
+    }
+  }
+
+  @Test
+  public void inactivityTimeoutSplitsInstances() {
+    // Ticket 1 is updated 10 after its creation, ticket 2 only 80 after its creation
+    List<Event> events = new ArrayList<>();
+    events.add(ticketEvent(0, 0, "timeout_create", "1"));
+    events.add(ticketEvent(1, 10, "timeout_update", "1"));
+    events.add(ticketEvent(2, 20, "timeout_create", "2"));
+    events.add(ticketEvent(3, 100, "timeout_update", "2"));
+    ObjectClass objectClass = new ObjectClass(0, "ObjectClass_0", Collections.singletonList("timeout_ticket"));
+    objectClass.setRelevantEvents(events);
+    objectClass.getAttributes().get("timeout_ticket").setSimilarityWeight(1);
+    objectClass.setHighestSimilarityScore(1);
+
+    for (boolean indexed : new boolean[]{false, true}) {
+      ObjectLifecycleDetector detector = new ObjectLifecycleDetector(objectClass, 0.5, indexed);
+      detector.estimate();
+      assertEquals(Arrays.asList(Arrays.asList(0, 1), Arrays.asList(2, 3)), eventIds(objectClass.getInstances()));
+
+      detector = new ObjectLifecycleDetector(objectClass, 0.5, indexed);
+      detector.setInactivityTimeout(50);
+      detector.estimate();
+      assertEquals(Arrays.asList(Arrays.asList(0, 1), Arrays.asList(2), Arrays.asList(3)), eventIds(objectClass.getInstances()));
+    }
+  }
+
+  private static Event ticketEvent(int id, long timestamp, String activity, String ticket) {
+    Map<String, String> attributes = new HashMap<>();
+    attributes.put("timeout_ticket", ticket);
+    return new Event(id, "0", timestamp, activity, attributes);
+  }
+
+  private static List<List<Integer>> eventIds(List<ObjectInstance> instances) {
+    return instances.stream()
+        .map(instance -> instance.getElements().stream().map(Event::getId).collect(Collectors.toList()))
+        .collect(Collectors.toList());
+  }
+}
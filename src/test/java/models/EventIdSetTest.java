@@ -0,0 +1,63 @@
+package models;
+
+import org.junit.Test;
+
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+public class EventIdSetTest {
+
+  private static EventIdSet toEventIdSet(Set<Integer> ids) {
+    EventIdSet set = new EventIdSet();
+    for (int id : ids) {
+      set.add(id);
+    }
+    return set;
+  }
+
+  @Test
+  public void matchesHashSet() {
+    Random random = new Random(7);
+    // Sparse and dense ranges create array and bitmap containers
+    Set<Integer> expected = new HashSet<>();
+    EventIdSet actual = new EventIdSet();
+    for (int i = 0; i < 50000; i++) {
+      int id = random.nextBoolean() ? random.nextInt(10000) : random.nextInt(1 << 22);
+      assertEquals(expected.add(id), actual.add(id));
+    }
+    assertEquals(expected.size(), actual.size());
+    assertEquals(expected, actual);
+    assertEquals(expected.hashCode(), actual.hashCode());
+    assertEquals(new TreeSet<>(expected), new TreeSet<>(actual));
+    List<Integer> iterated = new ArrayList<>(actual);
+    List<Integer> sorted = new ArrayList<>(expected);
+    Collections.sort(sorted);
+    assertEquals(sorted, iterated);
+    for (int id = 0; id < 20000; id++) {
+      assertEquals(expected.contains(id), actual.contains(id));
+    }
+  }
+
+  @Test
+  public void subsetTests() {
+    Random random = new Random(11);
+    for (int round = 0; round < 200; round++) {
+      int range = round % 2 == 0 ? 20000 : 300000;
+      Set<Integer> superSet = new HashSet<>();
+      Set<Integer> subset = new HashSet<>();
+      for (int i = 0; i < random.nextInt(12000); i++) {
+        int id = random.nextInt(range);
+        superSet.add(id);
+        if (random.nextInt(3) > 0) {
+          subset.add(id);
+        }
+      }
+      if (round % 3 == 0) {
+        subset.add(random.nextInt(range));
+      }
+      assertEquals(superSet.containsAll(subset), toEventIdSet(superSet).containsAll(toEventIdSet(subset)));
+      assertEquals(subset.containsAll(superSet), toEventIdSet(subset).containsAll(toEventIdSet(superSet)));
+    }
+  }
+}
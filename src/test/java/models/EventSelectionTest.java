@@ -0,0 +1,55 @@
+package models;
+
+import org.junit.Test;
+
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+public class EventSelectionTest {
+
+  private static List<Event> createEvents(int count) {
+    EventStore store = new EventStore(count);
+    int activity = EventStore.ACTIVITIES.encode("selection_activity");
+    for (int i = 0; i < count; i++) {
+      store.append(i, EventStore.EMPTY_VALUE, i, activity, new int[0], new int[0], 0, 0);
+    }
+    return store.getEvents();
+  }
+
+  private static void assertSelection(List<Event> events, int[] positions, boolean bitset) {
+    EventSelection selection = new EventSelection(events, positions, positions.length);
+    assertEquals(bitset, selection.isBitset());
+    List<Event> expected = new ArrayList<>();
+    for (int position : positions) {
+      expected.add(events.get(position));
+    }
+    assertEquals(expected, selection);
+    assertEquals(expected, new ArrayList<>(selection));
+    for (int i = 0; i < positions.length; i++) {
+      assertEquals(positions[i], selection.getPosition(i));
+      assertSame(events.get(positions[i]), selection.get(i));
+    }
+  }
+
+  @Test
+  public void sparseSelection() {
+    List<Event> events = createEvents(1000);
+    assertSelection(events, new int[] {3, 64, 500, 999}, false);
+    assertSelection(events, new int[0], false);
+  }
+
+  @Test
+  public void denseSelection() {
+    List<Event> events = createEvents(1000);
+    Random random = new Random(7);
+    int[] positions = new int[1000];
+    int count = 0;
+    for (int position = 0; position < events.size(); position++) {
+      if (random.nextInt(3) == 0) {
+        positions[count++] = position;
+      }
+    }
+    assertSelection(events, Arrays.copyOf(positions, count), true);
+  }
+}
@@ -0,0 +1,35 @@
+package models;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class HyperLogLogTest {
+
+  @Test
+  public void estimateWithinErrorBound() {
+    int precision = HyperLogLog.precisionFor(0.01);
+    assertEquals(14, precision);
+    for (int distinctValues : new int[] {10, 1000, 200000}) {
+      HyperLogLog sketch = new HyperLogLog(precision);
+      for (int i = 0; i < distinctValues * 3; i++) {
+        sketch.add(i % distinctValues);
+      }
+      // Three standard errors
+      assertEquals(distinctValues, sketch.estimate(), distinctValues * 0.03 + 1);
+    }
+  }
+
+  @Test
+  public void mergedSketchEqualsSingleSketch() {
+    HyperLogLog single = new HyperLogLog(10);
+    HyperLogLog first = new HyperLogLog(10);
+    HyperLogLog second = new HyperLogLog(10);
+    for (int i = 0; i < 50000; i++) {
+      single.add(i);
+      (i < 20000 ? first : second).add(i);
+    }
+    first.merge(second);
+    assertEquals(single.estimate(), first.estimate(), 0);
+  }
+}
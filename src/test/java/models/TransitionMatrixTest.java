@@ -0,0 +1,98 @@
+package models;
+
+import org.junit.Test;
+
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+public class TransitionMatrixTest {
+
+  // Alternates between the given assignments, one source for all events if true, one source per event otherwise
+  private static class AlternatingMatrix extends TransitionMatrix<SourceSequence<Event>, Event> {
+    private final boolean[] assignments;
+    private int passes = 0;
+    // Milliseconds to wait per element of the initialization
+    private long initializationDelay = 0;
+
+    private AlternatingMatrix(List<Event> events, boolean... assignments) {
+      super(events, "alternating");
+      this.assignments = assignments;
+    }
+
+    @Override
+    protected void estimateSequences() {
+      super.estimateSequences();
+      this.passes++;
+    }
+
+    @Override
+    protected SourceSequence<Event> getSuitableSource(List<SourceSequence<Event>> activeSources, Event element) {
+      if (this.passes == 0 && this.initializationDelay > 0) {
+        try {
+          Thread.sleep(this.initializationDelay);
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+      }
+      boolean single = this.assignments[this.passes % this.assignments.length];
+      return single && !activeSources.isEmpty() ? activeSources.get(0) : null;
+    }
+
+    @Override
+    protected SourceSequence<Event> createSource() {
+      return new SourceSequence<>();
+    }
+  }
+
+  @Test
+  public void estimationStopsAtRepeatedSources() {
+    List<Event> events = new ArrayList<>();
+    EventStore store = new EventStore();
+    for (int i = 0; i < 5; i++) {
+      events.add(store.append(i, "0", (long) i, "matrix_activity_" + (i % 2), new HashMap<>()));
+    }
+
+    // Sources equal to the previous iteration
+    AlternatingMatrix matrix = new AlternatingMatrix(events, false);
+    matrix.estimate();
+    assertEquals(2, matrix.passes);
+    assertEquals(5, matrix.getSources().size());
+
+    // Sources repeating those of two iterations before
+    matrix = new AlternatingMatrix(events, false, true);
+    matrix.estimate();
+    assertEquals(3, matrix.passes);
+    assertEquals(5, matrix.getSources().size());
+
+    matrix = new AlternatingMatrix(events, false, true, true);
+    matrix.estimate();
+    assertEquals(3, matrix.passes);
+    assertEquals(1, matrix.getSources().size());
+  }
+
+  @Test
+  public void estimationStopsAtLimits() {
+    List<Event> events = new ArrayList<>();
+    EventStore store = new EventStore();
+    for (int i = 0; i < 5; i++) {
+      events.add(store.append(i, "0", (long) i, "matrix_activity_" + (i % 2), new HashMap<>()));
+    }
+
+    AlternatingMatrix matrix = new AlternatingMatrix(events, false, true, true);
+    matrix.setIterationLimit(1);
+    matrix.estimate();
+    assertEquals(EstimationStop.ITERATION_LIMIT, matrix.getEstimationStop());
+    assertEquals(2, matrix.passes);
+    assertEquals(1, matrix.getSources().size());
+
+    // The initialization completes even if it exceeds the time limit
+    matrix = new AlternatingMatrix(events, false, true, true);
+    matrix.initializationDelay = 2;
+    matrix.setTimeLimit(1);
+    matrix.estimate();
+    assertEquals(EstimationStop.TIME_LIMIT, matrix.getEstimationStop());
+    assertEquals(1, matrix.passes);
+    assertEquals(5, matrix.getSources().size());
+  }
+}
@@ -0,0 +1,41 @@
+package models;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class TransitionTableTest {
+
+  @Test
+  public void sparseTableMatchesDenseTable() {
+    Random random = new Random(7);
+    int size = 60;
+    DenseTransitionTable dense = new DenseTransitionTable(size);
+    SparseTransitionTable sparse = new SparseTransitionTable(size);
+    for (int round = 0; round < 3; round++) {
+      dense.clear();
+      sparse.clear();
+      for (int i = 0; i < 2000; i++) {
+        // Few rows with many transitions, many rows with few
+        int from = random.nextInt(random.nextBoolean() ? 5 : size);
+        int to = random.nextInt(size);
+        dense.increment(from, to);
+        sparse.increment(from, to);
+      }
+      dense.normalize();
+      sparse.normalize();
+      for (int from = 0; from < size; from++) {
+        for (int to = 0; to < size; to++) {
+          assertEquals(dense.get(from, to), sparse.get(from, to), 0);
+        }
+      }
+    }
+
+    sparse.clear();
+    assertEquals(0, sparse.get(0, 0), 0);
+    assertTrue(TransitionTable.create(TransitionTable.SPARSE_THRESHOLD + 1) instanceof SparseTransitionTable);
+    assertTrue(TransitionTable.create(10) instanceof DenseTransitionTable);
+  }
+}
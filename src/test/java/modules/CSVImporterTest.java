@@ -0,0 +1,106 @@
+package modules;
+
+import models.Event;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class CSVImporterTest {
+
+  private static File writeLog(String content) throws IOException {
+    File file = File.createTempFile("event_log", ".csv");
+    file.deleteOnExit();
+    try (FileOutputStream stream = new FileOutputStream(file)) {
+      stream.write(content.getBytes(StandardCharsets.UTF_8));
+    }
+    return file;
+  }
+
+  private static void assertSameEvents(List<Event> expected, List<Event> actual) {
+    assertEquals(expected.size(), actual.size());
+    for (int i = 0; i < expected.size(); i++) {
+      assertEquals(expected.get(i).getId(), actual.get(i).getId());
+      assertEquals(expected.get(i).getCaseId(), actual.get(i).getCaseId());
+      assertEquals(expected.get(i).getTimestamp(), actual.get(i).getTimestamp());
+      assertEquals(expected.get(i).getActivity(), actual.get(i).getActivity());
+      assertEquals(expected.get(i).getAttributes(), actual.get(i).getAttributes());
+    }
+  }
+
+  @Test
+  public void mappedImportMatchesImport() throws IOException {
+    File file = writeLog("timestamp;activity;subject_id;gender;location\n"
+        + "1000;Admit Patient;1;F;ER\n"
+        + "1001;Transfer Patient;1;;ICU\n"
+        + "1002;Admit Patient;2;M;\n"
+        + "1003;Discharge Patient;;;\n");
+    List<Event> events = CSVImporter.load(file.getPath(), ";", false);
+    List<Event> mappedEvents = CSVImporter.loadMapped(file.getPath(), ";", false);
+    assertEquals(4, mappedEvents.size());
+    assertEquals("ER", mappedEvents.get(0).getAttributes().get("location"));
+    assertTrue(mappedEvents.get(3).getAttributes().isEmpty());
+    assertSameEvents(events, mappedEvents);
+  }
+
+  @Test
+  public void parallelImportKeepsEventIds() throws IOException {
+    StringBuilder log = new StringBuilder("timestamp;activity;subject_id;hadm_id\n");
+    for (int i = 0; i < 5000; i++) {
+      log.append(i).append(";Activity_").append(i % 7).append(";").append(i % 13).append(";");
+      if (i % 3 == 0) {
+        log.append(i);
+      }
+      log.append(i % 11 == 0 ? "\r\n" : "\n");
+    }
+    File file = writeLog(log.toString());
+    List<Event> events = CSVImporter.loadMapped(file.getPath(), ";", false, 1);
+    List<Event> parallelEvents = CSVImporter.loadMapped(file.getPath(), ";", false, 4);
+    assertEquals(5000, parallelEvents.size());
+    for (int i = 0; i < parallelEvents.size(); i++) {
+      assertEquals(i, parallelEvents.get(i).getId());
+      assertEquals(i, (long) parallelEvents.get(i).getTimestamp());
+    }
+    assertSameEvents(events, parallelEvents);
+  }
+
+  @Test
+  public void mappedImportDebuggingMode() throws IOException {
+    File file = writeLog("case;timestamp;activity;subject_id\r\n"
+        + "c1;-5;Admit Patient;1\r\n"
+        + "c2;7;Admit Patient;2\r\n");
+    List<Event> events = CSVImporter.load(file.getPath(), ";", true);
+    List<Event> mappedEvents = CSVImporter.loadMapped(file.getPath(), ";", true);
+    assertEquals("c1", mappedEvents.get(0).getCaseId());
+    assertEquals(-5L, (long) mappedEvents.get(0).getTimestamp());
+    assertSameEvents(events, mappedEvents);
+  }
+
+  @Test
+  public void mappedImportCarriageReturnLineEnds() throws IOException {
+    for (String log : Arrays.asList("timestamp;activity;a\r1;x;u\r2;y;v\r", "timestamp;activity;a\r\n1;x;u\r2;y;v")) {
+      File file = writeLog(log);
+      List<Event> events = CSVImporter.load(file.getPath(), ";", false);
+      List<Event> mappedEvents = CSVImporter.loadMapped(file.getPath(), ";", false);
+      assertEquals(2, mappedEvents.size());
+      assertEquals("u", mappedEvents.get(0).getAttributes().get("a"));
+      assertEquals("y", mappedEvents.get(1).getActivity());
+      assertSameEvents(events, mappedEvents);
+    }
+  }
+
+  @Test
+  public void mappedImportMultiByteSeparatorAndCharacters() throws IOException {
+    File file = writeLog("timestamp||activity||location\n1||Admit Patient||Z\u00fcrich\n2||Discharge Patient||\n");
+    List<Event> mappedEvents = CSVImporter.loadMapped(file.getPath(), "||", false);
+    assertEquals(2, mappedEvents.size());
+    assertEquals("Z\u00fcrich", mappedEvents.get(0).getAttributes().get("location"));
+    assertEquals("Discharge Patient", mappedEvents.get(1).getActivity());
+  }
+}
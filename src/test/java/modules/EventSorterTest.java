@@ -0,0 +1,72 @@
+package modules;
+
+import models.Event;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class EventSorterTest {
+
+  private static File writeLog(String content) throws IOException {
+    File file = File.createTempFile("event_log", ".csv");
+    file.deleteOnExit();
+    try (FileOutputStream stream = new FileOutputStream(file)) {
+      stream.write(content.getBytes(StandardCharsets.UTF_8));
+    }
+    return file;
+  }
+
+  private static String unorderedLog(long scale) {
+    StringBuilder log = new StringBuilder("timestamp;activity;subject_id\n");
+    for (int i = 0; i < 1000; i++) {
+      // Every timestamp occurs several times, the subject id records the original row
+      log.append(((i * 37) % 100 - 50) * scale).append(";Activity_").append(i % 5).append(";").append(i).append("\n");
+    }
+    return log.toString();
+  }
+
+  private static void assertStablySorted(List<Event> events) {
+    assertEquals(1000, events.size());
+    for (int i = 1; i < events.size(); i++) {
+      Event previous = events.get(i - 1);
+      Event event = events.get(i);
+      assertEquals(i, event.getId());
+      assertTrue(previous.getTimestamp() <= event.getTimestamp());
+      if (previous.getTimestamp() == event.getTimestamp()) {
+        assertTrue(Integer.parseInt(previous.getAttributes().get("subject_id")) < Integer.parseInt(event.getAttributes().get("subject_id")));
+      }
+    }
+  }
+
+  @Test
+  public void sortsEventsInMemory() throws IOException {
+    List<Event> events = CSVImporter.loadMapped(writeLog(unorderedLog(1)).getPath(), ";", false);
+    assertFalse(EventSorter.isSorted(events));
+    EventSorter.sortByTimestamp(events);
+    assertStablySorted(events);
+    assertEquals("Activity_0", events.get(0).getActivity());
+  }
+
+  @Test
+  public void sortsEventsWithWideTimestampRange() throws IOException {
+    List<Event> events = CSVImporter.loadMapped(writeLog(unorderedLog(Long.MAX_VALUE / 50)).getPath(), ";", false);
+    EventSorter.sortByTimestamp(events);
+    assertStablySorted(events);
+  }
+
+  @Test
+  public void sortsFileExternally() throws IOException {
+    File file = writeLog(unorderedLog(1));
+    assertFalse(EventSorter.isSorted(file.getPath(), ";", false, true));
+    // A small memory budget forces multiple runs
+    File sortedFile = EventSorter.sortFile(file.getPath(), ";", false, true, 4096);
+    assertTrue(EventSorter.isSorted(sortedFile.getPath(), ";", false, true));
+    assertStablySorted(CSVImporter.loadMapped(sortedFile.getPath(), ";", false));
+  }
+}
@@ -0,0 +1,97 @@
+package modules;
+
+import models.Event;
+import models.ObjectClass;
+import models.SchemaUpdate;
+import org.junit.Test;
+
+import java.util.*;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.*;
+
+public class IncrementalSchemaDetectorTest {
+
+  private static List<Event> createEvents() {
+    List<Event> events = new ArrayList();
+    events.add(new Event(0, "0", 0L, "admit", new HashMap() {{ put("subject_id", "1"); put("hadm_id", "10"); put("location", "A"); }}));
+    events.add(new Event(1, "0", 1L, "prescribe", new HashMap() {{ put("drug", "x"); put("dose", "1"); }}));
+    events.add(new Event(2, "0", 2L, "prescribe", new HashMap() {{ put("drug", "y"); }}));
+    events.add(new Event(3, "0", 3L, "transfer", new HashMap() {{ put("hadm_id", "10"); put("location", "B"); }}));
+    events.add(new Event(4, "0", 4L, "admit", new HashMap() {{ put("subject_id", "2"); put("hadm_id", "11"); put("location", "A"); }}));
+    events.add(new Event(5, "0", 5L, "prescribe", new HashMap() {{ put("drug", "z"); put("dose", "2"); }}));
+    events.add(new Event(6, "0", 6L, "discharge", new HashMap() {{ put("hadm_id", "11"); put("status", "home"); }}));
+    events.add(new Event(7, "0", 7L, "transfer", new HashMap() {{ put("hadm_id", "11"); put("location", "C"); }}));
+    return events;
+  }
+
+  @Test
+  public void appendedEventsMatchFullDetection() {
+    List<Event> events = createEvents();
+    List<ObjectClass> expected = SchemaDetector.extractTables(events);
+
+    for (int split = 0; split <= events.size(); split++) {
+      IncrementalSchemaDetector detector = new IncrementalSchemaDetector();
+      detector.append(events.subList(0, split));
+      List<ObjectClass> actual = detector.append(events.subList(split, events.size())).getObjectClasses();
+
+      assertEquals(expected.size(), actual.size());
+      for (int i = 0; i < expected.size(); i++) {
+        assertEquals(expected.get(i).getName(), actual.get(i).getName());
+        assertEquals(expected.get(i).getAttributeNames(), actual.get(i).getAttributeNames());
+        for (String columnName : expected.get(i).getAttributeNames()) {
+          assertEquals(expected.get(i).getAttributes().get(columnName).size(), actual.get(i).getAttributes().get(columnName).size());
+        }
+      }
+    }
+  }
+
+  @Test
+  public void unchangedSchemaRetainsObjectClasses() {
+    List<Event> events = createEvents();
+    IncrementalSchemaDetector detector = new IncrementalSchemaDetector();
+    SchemaUpdate initial = detector.append(events.subList(0, 7));
+    assertTrue(initial.hasChanges());
+    assertEquals(initial.getObjectClasses(), initial.getAddedObjectClasses());
+
+    ObjectClass prescriptions = initial.getObjectClasses().stream()
+        .filter(objectClass -> objectClass.getAttributeNames().contains("drug"))
+        .findFirst().get();
+    int drugCount = prescriptions.getAttributes().get("drug").size();
+
+    List<Event> appendedEvents = new ArrayList<>();
+    appendedEvents.add(new Event(8, "0", 8L, "prescribe", new HashMap() {{ put("drug", "w"); put("dose", "3"); }}));
+    SchemaUpdate update = detector.append(appendedEvents);
+    assertFalse(update.hasChanges());
+    assertSame(initial.getObjectClasses(), update.getObjectClasses());
+    assertEquals(drugCount + 1, prescriptions.getAttributes().get("drug").size());
+  }
+
+  @Test
+  public void objectClassesAreMatchedByAttributes() {
+    List<Event> events = createEvents();
+    IncrementalSchemaDetector detector = new IncrementalSchemaDetector();
+    SchemaUpdate initial = detector.append(events);
+    ObjectClass prescriptions = initial.getObjectClasses().stream()
+        .filter(objectClass -> objectClass.getAttributeNames().contains("drug"))
+        .findFirst().get();
+
+    // The table of the new activity is detected first and moves all other object classes
+    List<Event> appendedEvents = new ArrayList<>();
+    appendedEvents.add(new Event(8, "0", 8L, "audit", new HashMap() {{ put("auditor", "a"); }}));
+    SchemaUpdate update = detector.append(appendedEvents);
+    assertEquals(Collections.singletonList(Collections.singletonList("auditor")),
+        update.getAddedObjectClasses().stream().map(ObjectClass::getAttributeNames).collect(Collectors.toList()));
+    assertTrue(update.getRemovedObjectClasses().isEmpty());
+    assertEquals(initial.getObjectClasses().size(), update.getRenamedObjectClasses().size());
+    assertEquals(0, update.getObjectClasses().indexOf(update.getAddedObjectClasses().get(0)));
+
+    // The renamed object class keeps the populated columns
+    ObjectClass renamedPrescriptions = update.getObjectClasses().stream()
+        .filter(objectClass -> objectClass.getAttributeNames().contains("drug"))
+        .findFirst().get();
+    assertNotEquals(prescriptions.getName(), renamedPrescriptions.getName());
+    assertSame(prescriptions.getAttributes().get("drug"), renamedPrescriptions.getAttributes().get("drug"));
+    assertEquals(3, renamedPrescriptions.getAttributes().get("drug").size());
+  }
+}
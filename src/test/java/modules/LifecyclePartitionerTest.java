@@ -0,0 +1,88 @@
+package modules;
+
+import helpers.ObjectLifecycleDetector;
+import models.EstimationStop;
+import models.Event;
+import models.EventStore;
+import models.ObjectClass;
+import models.ObjectInstance;
+import org.junit.Test;
+
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.*;
+
+public class LifecyclePartitionerTest {
+
+  private static ObjectClass createObjectClass(String... identifiers) {
+    List<Event> events = new ArrayList<>();
+    EventStore store = new EventStore();
+    Set<String> openIdentifiers = new HashSet<>();
+    for (int i = 0; i < identifiers.length; i++) {
+      String identifier = identifiers[i];
+      String status = openIdentifiers.add(identifier) ? "open" : "closed";
+      events.add(store.append(i, "0", (long) i, "partition_" + status, new HashMap<String, String>() {{ put("partition_id", identifier); put("partition_status", status); }}));
+    }
+    ObjectClass objectClass = new ObjectClass(0, "ObjectClass_0", Arrays.asList("partition_id", "partition_status"));
+    objectClass.setRelevantEvents(events);
+    objectClass.getAttributes().get("partition_id").setSimilarityWeight(1);
+    objectClass.getAttributes().get("partition_status").setSimilarityWeight(0.1);
+    objectClass.setHighestSimilarityScore(1.1);
+    return objectClass;
+  }
+
+  @Test
+  public void eventsSharingIdentifyingValuesStayTogether() {
+    ObjectClass objectClass = createObjectClass("a", "b", "a", "c", "b", "a");
+    List<List<Event>> partitions = LifecyclePartitioner.partition(objectClass, 0.7, 2);
+
+    List<List<Integer>> partitionIds = partitions.stream()
+        .map(partition -> partition.stream().map(Event::getId).collect(Collectors.toList()))
+        .collect(Collectors.toList());
+    assertEquals(Arrays.asList(Arrays.asList(0, 2, 5), Arrays.asList(1, 3, 4)), partitionIds);
+
+    // Without identifying column the class is not split
+    assertEquals(1, LifecyclePartitioner.partition(objectClass, 0.95, 2).size());
+  }
+
+  @Test
+  public void partitionsAreCombined() {
+    ObjectClass objectClass = createObjectClass("a", "b", "a", "c", "b", "c", "d", "d");
+    ExecutorService pool = Executors.newWorkStealingPool(2);
+    LifecyclePartitioner.estimate(new ObjectLifecycleDetector(objectClass, 0.7), pool, 2);
+    pool.shutdown();
+
+    List<List<Integer>> instanceIds = objectClass.getInstances().stream()
+        .map(instance -> instance.getElements().stream().map(Event::getId).collect(Collectors.toList()))
+        .collect(Collectors.toList());
+    assertEquals(Arrays.asList(Arrays.asList(0, 2), Arrays.asList(1, 4), Arrays.asList(3, 5), Arrays.asList(6, 7)), instanceIds);
+    assertNotNull(objectClass.getLifecycle());
+  }
+
+  @Test
+  public void partitionsShareTimeLimitOfObjectClass() throws Exception {
+    ObjectClass objectClass = createObjectClass("a", "b", "a", "c", "b", "c", "d", "d");
+    ExecutorService pool = Executors.newWorkStealingPool(1);
+    // The only worker is busy beyond the time limit of the class, so the partitions start after it expired
+    Future<?> busyWorker = pool.submit(() -> {
+      try {
+        Thread.sleep(200);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    });
+    ObjectLifecycleDetector detector = new ObjectLifecycleDetector(objectClass, 0.7);
+    detector.setTimeLimit(50);
+    LifecyclePartitioner.estimate(detector, pool, 1);
+    busyWorker.get();
+    pool.shutdown();
+
+    // Each partition is initialized but not iterated
+    assertEquals(EstimationStop.TIME_LIMIT, objectClass.getEstimationStop());
+    assertEquals(4, objectClass.getInstances().size());
+  }
+}
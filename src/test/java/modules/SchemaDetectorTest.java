@@ -2,7 +2,10 @@ package modules;
 
 import models.A2AMapping;
 import models.Event;
+import models.EventStore;
 import models.ObjectClass;
+import models.RelationMatrix;
+import models.RelationStatistics;
 import org.junit.Test;
 
 import java.util.*;
@@ -115,4 +118,74 @@ public class SchemaDetectorTest {
     List<ObjectClass> result = SchemaDetector.mergeTables(objectClasses);
     assertEquals(5, result.size());
   }
+
+  @Test
+  public void keyDeletionMergeTest() {
+    List<ObjectClass> objectClasses = new ArrayList<>();
+    objectClasses.add(new ObjectClass(1, "Table_1", new ArrayList() {{ add("subject_id"); add("hadm_id"); add("location"); }}));
+    objectClasses.add(new ObjectClass(2, "Table_2", new ArrayList() {{ add("subject_id"); add("gender"); }}));
+    objectClasses.add(new ObjectClass(3, "Table_3", new ArrayList() {{ add("subject_id"); add("dod"); }}));
+    objectClasses.add(new ObjectClass(4, "Table_4", new ArrayList() {{ add("hadm_id"); add("drug"); }}));
+    List<ObjectClass> result = SchemaDetector.mergeTables(objectClasses);
+    // Tables sharing only subject_id are merged first, which leaves hadm_id as the only key of the other tables
+    assertEquals(2, result.size());
+    assertEquals(new HashSet<>(Arrays.asList("subject_id", "gender", "dod")), new HashSet<>(result.get(0).getAttributeNames()));
+    assertEquals(new HashSet<>(Arrays.asList("hadm_id", "location", "drug")), new HashSet<>(result.get(1).getAttributeNames()));
+  }
+
+  @Test
+  public void relationStatisticsMatchEvents() {
+    List<Event> events = new ArrayList();
+    events.add(new Event(0, "0", 0L, "test_activity_1", new HashMap() {{ put("test_column_1", "test_value"); put("test_column_2", "test_value"); }}));
+    events.add(new Event(1, "0", 0L, "test_activity_2", new HashMap() {{ put("test_column_2", "test_value"); }}));
+    events.add(new Event(2, "0", 0L, "test_activity_1", new HashMap() {{ put("test_column_3", "test_value"); }}));
+    events.add(new Event(3, "0", 0L, "test_activity_3", new HashMap() {{ put("test_column_1", "test_value"); put("test_column_3", "test_value"); }}));
+
+    RelationStatistics statistics = new RelationStatistics();
+    for (Event event : events) {
+      int[] attributeCodes = new int[event.getAttributeCount()];
+      for (int i = 0; i < attributeCodes.length; i++) {
+        attributeCodes[attributeCodes.length - 1 - i] = event.getAttributeCode(i);
+      }
+      statistics.add(event.getId(), event.getActivityCode(), attributeCodes, 0, attributeCodes.length);
+    }
+
+    A2AMapping expected = SchemaDetector.generateA2AMapping(events);
+    A2AMapping actual = SchemaDetector.generateA2AMapping(statistics);
+    assertEquals(new ArrayList<>(expected.getActivities().keySet()), new ArrayList<>(actual.getActivities().keySet()));
+    assertEquals(new ArrayList<>(expected.getAttributes().keySet()), new ArrayList<>(actual.getAttributes().keySet()));
+    for (String attributeName : expected.getAttributes().keySet()) {
+      assertEquals(expected.getAttributes().get(attributeName).getEventIds(), actual.getAttributes().get(attributeName).getEventIds());
+      for (String activityName : expected.getActivities().keySet()) {
+        assertEquals(expected.getRelationCounter(expected.getActivities().get(activityName), expected.getAttributes().get(attributeName)),
+            actual.getRelationCounter(actual.getActivities().get(activityName), actual.getAttributes().get(attributeName)));
+      }
+    }
+    assertEquals(SchemaDetector.extractTables(events).size(), SchemaDetector.extractTables(events, statistics).size());
+  }
+
+  @Test
+  public void parallelRelationCounting() {
+    List<Event> events = new ArrayList();
+    EventStore store = new EventStore();
+    for (int i = 0; i < 1000; i++) {
+      Map<String, String> attributes = new HashMap<>();
+      attributes.put("test_column_" + (i % 7), "test_value");
+      attributes.put("test_column_" + (i % 3 + 10), "test_value");
+      events.add(store.append(i, "0", (long) i, "test_activity_" + (i % 5), attributes));
+    }
+    RelationMatrix expected = SchemaDetector.countRelations(events, 1);
+    RelationMatrix actual = SchemaDetector.countRelations(events, 4);
+    RelationMatrix sparse = new RelationMatrix(0, true);
+    sparse.merge(actual, null);
+    for (Event event : events) {
+      for (int i = 0; i < event.getAttributeCount(); i++) {
+        int count = expected.get(event.getActivityCode(), event.getAttributeCode(i));
+        assertTrue(count > 0);
+        assertEquals(count, actual.get(event.getActivityCode(), event.getAttributeCode(i)));
+        assertEquals(count, sparse.get(event.getActivityCode(), event.getAttributeCode(i)));
+      }
+      assertArrayEquals(expected.getAttributeCodes(event.getActivityCode()), sparse.getAttributeCodes(event.getActivityCode()));
+    }
+  }
 }
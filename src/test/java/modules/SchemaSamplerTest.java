@@ -0,0 +1,133 @@
+package modules;
+
+import models.A2AMapping;
+import models.Attribute;
+import models.Event;
+import models.EventIdSet;
+import models.EventStore;
+import models.ObjectClass;
+import models.SampleValidation;
+import org.junit.Test;
+
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+public class SchemaSamplerTest {
+
+  @Test
+  public void stratifiedSample() {
+    List<Event> events = new ArrayList();
+    EventStore store = new EventStore();
+    for (int i = 0; i < 1000; i++) {
+      String activity = i % 100 == 0 ? "sampler_rare" : "sampler_common";
+      events.add(store.append(i, "0", (long) i, activity, new HashMap() {{ put("sampler_column", "value"); }}));
+    }
+
+    List<Event> sample = SchemaSampler.sample(events, 200);
+    // The ten events of the rare activity are kept, the common activity is sampled in proportion
+    assertEquals(10, sample.stream().filter(event -> event.getActivity().equals("sampler_rare")).count());
+    assertEquals(198, sample.stream().filter(event -> event.getActivity().equals("sampler_common")).count());
+    for (int i = 1; i < sample.size(); i++) {
+      assertTrue(sample.get(i - 1).getId() < sample.get(i).getId());
+    }
+    assertSame(events, SchemaSampler.sample(events, events.size()));
+  }
+
+  @Test
+  public void validationReportsUnconfirmedAttributes() {
+    List<Event> events = new ArrayList();
+    events.add(new Event(0, "0", 0L, "validation_activity_1", new HashMap() {{ put("validation_column_1", "value"); }}));
+    events.add(new Event(1, "0", 1L, "validation_activity_2", new HashMap() {{ put("validation_column_2", "value"); }}));
+    events.add(new Event(2, "0", 2L, "validation_activity_2", new HashMap() {{ put("validation_column_1", "value"); put("validation_column_3", "value"); }}));
+
+    List<Event> sample = events.subList(0, 2);
+    A2AMapping mapping = SchemaDetector.generateA2AMapping(sample);
+    Map<Integer, EventIdSet> sampleEventIds = eventIds(mapping);
+    List<ObjectClass> objectClasses = SchemaDetector.detectTables(mapping);
+
+    SampleValidation validation = SchemaSampler.validate(objectClasses, mapping.getActivityAttributeRelations(), sampleEventIds, events, 1);
+    assertFalse(validation.isConfirmed());
+    assertEquals(Collections.singletonList("validation_column_3"), validation.getUnassignedAttributes());
+    assertEquals(Collections.singletonList("validation_column_1"), validation.getUnconfirmedAttributes());
+
+    validation = SchemaSampler.validate(objectClasses, mapping.getActivityAttributeRelations(), sampleEventIds, sample, 1);
+    assertTrue(validation.isConfirmed());
+  }
+
+  @Test
+  public void validationReportsDifferentInclusions() {
+    // Every event has both attributes except for two events that are not sampled, so only all events separate them
+    List<Event> events = new ArrayList();
+    EventStore store = new EventStore();
+    for (int i = 0; i < 1000; i++) {
+      Map<String, String> attributes = new HashMap<>();
+      if (i != 1) {
+        attributes.put("inclusion_x", String.valueOf(i));
+      }
+      if (i != 2) {
+        attributes.put("inclusion_y", String.valueOf(i));
+      }
+      events.add(store.append(i, "0", (long) i, "inclusion_activity", attributes));
+    }
+    assertEquals(Arrays.asList(Collections.singletonList("inclusion_x"), Collections.singletonList("inclusion_y")),
+        attributeNames(SchemaDetector.extractTables(events)));
+
+    List<Event> sample = SchemaSampler.sample(events, 200);
+    A2AMapping mapping = SchemaDetector.generateA2AMapping(sample, 1);
+    Map<Integer, EventIdSet> sampleEventIds = eventIds(mapping);
+    List<ObjectClass> objectClasses = SchemaDetector.detectTables(mapping);
+    assertEquals(Collections.singletonList(Arrays.asList("inclusion_x", "inclusion_y")), attributeNames(objectClasses));
+
+    SampleValidation validation = SchemaSampler.validate(objectClasses, mapping.getActivityAttributeRelations(), sampleEventIds, events, 1);
+    assertFalse(validation.isConfirmed());
+    assertEquals(Arrays.asList("inclusion_x", "inclusion_y"), validation.getDifferingAttributes());
+    assertEquals(Arrays.asList(Collections.singletonList("inclusion_x"), Collections.singletonList("inclusion_y")),
+        attributeNames(validation.getObjectClasses()));
+    assertEquals(Arrays.asList(Collections.singletonList("inclusion_x"), Collections.singletonList("inclusion_y")),
+        attributeNames(SchemaSampler.extractTables(events, 200, 2)));
+  }
+
+  @Test
+  public void validationDetectsAttributesMissingInSample() {
+    // The only event with the second attribute is not sampled, all its events include the first attribute
+    List<Event> events = new ArrayList();
+    EventStore store = new EventStore();
+    for (int i = 0; i < 1000; i++) {
+      Map<String, String> attributes = new HashMap<>();
+      attributes.put("missing_p", String.valueOf(i));
+      if (i == 1) {
+        attributes.put("missing_q", "value");
+      }
+      events.add(store.append(i, "0", (long) i, "missing_activity", attributes));
+    }
+
+    List<Event> sample = SchemaSampler.sample(events, 200);
+    A2AMapping mapping = SchemaDetector.generateA2AMapping(sample, 1);
+    Map<Integer, EventIdSet> sampleEventIds = eventIds(mapping);
+    List<ObjectClass> objectClasses = SchemaDetector.detectTables(mapping);
+    SampleValidation validation = SchemaSampler.validate(objectClasses, mapping.getActivityAttributeRelations(), sampleEventIds, events, 1);
+    assertEquals(Collections.singletonList("missing_q"), validation.getUnassignedAttributes());
+    assertEquals(Arrays.asList("missing_p", "missing_q"), validation.getDifferingAttributes());
+    assertEquals(Collections.singletonList(Arrays.asList("missing_p", "missing_q")), attributeNames(validation.getObjectClasses()));
+  }
+
+  private static Map<Integer, EventIdSet> eventIds(A2AMapping mapping) {
+    Map<Integer, EventIdSet> eventIds = new HashMap<>();
+    for (Attribute attribute : mapping.getAttributes().values()) {
+      eventIds.put(attribute.getCode(), attribute.getEventIds());
+    }
+    return eventIds;
+  }
+
+  private static List<List<String>> attributeNames(List<ObjectClass> objectClasses) {
+    List<List<String>> attributeNames = new ArrayList<>();
+    for (ObjectClass objectClass : objectClasses) {
+      List<String> names = new ArrayList<>(objectClass.getAttributeNames());
+      Collections.sort(names);
+      attributeNames.add(names);
+    }
+    attributeNames.sort(Comparator.comparing(Object::toString));
+    return attributeNames;
+  }
+}
@@ -0,0 +1,47 @@
+package modules;
+
+import models.Event;
+import models.EventStore;
+import models.ObjectClass;
+import org.junit.Test;
+
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.Assert.*;
+
+public class SimilarityWeightEvaluatorTest {
+
+  private static ObjectClass createObjectClass(List<Event> events) {
+    ObjectClass objectClass = new ObjectClass(0, "ObjectClass_0", Arrays.asList("weight_id", "weight_status"));
+    SchemaDetector.populateColumns(Collections.singletonList(objectClass), events, 1);
+    objectClass.setRelevantEvents(events);
+    return objectClass;
+  }
+
+  @Test
+  public void estimationOnPoolMatchesEstimationOnCallingThread() {
+    EventStore store = new EventStore();
+    for (int i = 0; i < 600000; i++) {
+      String identifier = String.valueOf(i / 2);
+      String status = i % 2 == 0 ? "open" : "closed";
+      store.append(i, "0", i, "weight_" + status, new HashMap<String, String>() {{ put("weight_id", identifier); put("weight_status", status); }});
+    }
+    List<Event> events = store.getEvents();
+    ObjectClass objectClass = createObjectClass(events);
+    ObjectClass pooledObjectClass = createObjectClass(events);
+
+    double score = SimilarityWeightEvaluator.determineSimilarityWeights(objectClass, 0.01);
+    ExecutorService pool = Executors.newWorkStealingPool(2);
+    double pooledScore = SimilarityWeightEvaluator.determineSimilarityWeights(pooledObjectClass, 0.01, pool);
+    pool.shutdown();
+
+    assertTrue(score > 0);
+    assertEquals(score, pooledScore, 0);
+    for (String attribute : objectClass.getAttributeNames()) {
+      assertEquals(objectClass.getAttributes().get(attribute).getSimilarityWeight(),
+          pooledObjectClass.getAttributes().get(attribute).getSimilarityWeight(), 0);
+    }
+  }
+}
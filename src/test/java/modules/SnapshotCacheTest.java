@@ -0,0 +1,68 @@
+package modules;
+
+import models.Event;
+import models.ObjectClass;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class SnapshotCacheTest {
+
+  private static File writeLog(String content) throws IOException {
+    File file = File.createTempFile("event_log", ".csv");
+    file.deleteOnExit();
+    new File(file.getPath() + ".snapshot").deleteOnExit();
+    try (FileOutputStream stream = new FileOutputStream(file)) {
+      stream.write(content.getBytes(StandardCharsets.UTF_8));
+    }
+    return file;
+  }
+
+  @Test
+  public void snapshotRestoresEventsAndSchema() throws IOException {
+    File file = writeLog("timestamp;activity;subject_id;location\n"
+        + "1000;Admit Patient;1;Z\u00fcrich\n"
+        + "1001;Transfer Patient;1;\n"
+        + "1002;Discharge Patient;;ICU\n");
+    List<Event> events = CSVImporter.loadMapped(file.getPath(), ";", false);
+    SnapshotCache cache = new SnapshotCache(file.getPath(), ";", false, true);
+    assertNull(cache.loadEvents());
+    cache.storeEvents(events);
+    cache.storeSchema(Collections.singletonList(new ObjectClass(3, "ObjectClass_3", Arrays.asList("subject_id", "location"))));
+
+    SnapshotCache restoredCache = new SnapshotCache(file.getPath(), ";", false, true);
+    List<Event> restoredEvents = restoredCache.loadEvents();
+    assertEquals(events.size(), restoredEvents.size());
+    for (int i = 0; i < events.size(); i++) {
+      assertEquals(events.get(i).getId(), restoredEvents.get(i).getId());
+      assertEquals(events.get(i).getTimestamp(), restoredEvents.get(i).getTimestamp());
+      assertEquals(events.get(i).getActivity(), restoredEvents.get(i).getActivity());
+      assertEquals(events.get(i).getAttributes(), restoredEvents.get(i).getAttributes());
+    }
+    List<ObjectClass> objectClasses = restoredCache.getObjectClasses();
+    assertEquals(3, objectClasses.get(0).getId());
+    assertEquals(Arrays.asList("subject_id", "location"), objectClasses.get(0).getAttributeNames());
+  }
+
+  @Test
+  public void snapshotOfChangedFileIsIgnored() throws IOException {
+    File file = writeLog("timestamp;activity;subject_id\n1000;Admit Patient;1\n");
+    SnapshotCache cache = new SnapshotCache(file.getPath(), ";", false, true);
+    cache.storeEvents(CSVImporter.loadMapped(file.getPath(), ";", false));
+    assertNotNull(cache.loadEvents());
+    assertNull(new SnapshotCache(file.getPath(), ",", false, true).loadEvents());
+
+    try (FileOutputStream stream = new FileOutputStream(file, true)) {
+      stream.write("1001;Discharge Patient;1\n".getBytes(StandardCharsets.UTF_8));
+    }
+    assertNull(cache.loadEvents());
+  }
+}
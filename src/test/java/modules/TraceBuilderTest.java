@@ -0,0 +1,48 @@
+package modules;
+
+import models.Event;
+import models.EventLog;
+import models.ObjectClass;
+import models.ObjectInstance;
+import models.Trace;
+import org.junit.Test;
+
+import java.util.*;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+
+public class TraceBuilderTest {
+
+  @Test
+  public void inactivityTimeoutStartsNewTrace() {
+    ObjectClass rootClass = new ObjectClass(0, "ObjectClass_0", Collections.emptyList());
+    ObjectClass itemClass = new ObjectClass(1, "ObjectClass_1", Collections.emptyList());
+    // The order is followed by an item 10 later and by another item 90 later, the items do not refer to the order
+    List<Event> events = new ArrayList<>();
+    events.add(referencedEvent(0, 0, "trace_order", rootClass));
+    events.add(referencedEvent(1, 10, "trace_item", itemClass));
+    events.add(referencedEvent(2, 100, "trace_item", itemClass));
+
+    EventLog eventLog = TraceBuilder.buildEventLog(rootClass, events);
+    assertEquals(Collections.singletonList(Arrays.asList(0, 1, 2)), eventIds(eventLog.getSources()));
+
+    // Without any open trace, the last item cannot be assigned by its transition probability
+    eventLog = TraceBuilder.buildEventLog(rootClass, events, 50);
+    assertEquals(Arrays.asList(Arrays.asList(0, 1), Collections.singletonList(2)), eventIds(eventLog.getSources()));
+  }
+
+  private static Event referencedEvent(int id, long timestamp, String activity, ObjectClass objectClass) {
+    Event event = new Event(id, "0", timestamp, activity, new HashMap<>());
+    ObjectInstance instance = new ObjectInstance(new ArrayList<>(), objectClass);
+    instance.add(event);
+    event.addEntityReference(instance);
+    return event;
+  }
+
+  private static List<List<Integer>> eventIds(List<Trace> traces) {
+    return traces.stream()
+        .map(trace -> trace.getEvents().stream().map(Event::getId).collect(Collectors.toList()))
+        .collect(Collectors.toList());
+  }
+}